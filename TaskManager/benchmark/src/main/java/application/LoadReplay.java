@@ -0,0 +1,259 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays an operation script against a task database through the model classes, at a target rate, and reports latency percentiles per operation.
+ * Each operation ends like a UI action: with a UnitOfWork flush, and here also waits until the writes are finished.
+ * Latency is measured from when the operation was scheduled, so time spent waiting behind slow operations counts; service time is measured from when it started.
+ * Tasks are loaded by their date the first time an operation uses them, as opening their day would.
+ *
+ * Script lines, see WorkloadGenerator.writeScript(); lines starting with # are skipped:
+ * create date name
+ * edit task name
+ * complete task
+ * move task date
+ * delete task
+ * A task is a database ID, or #n for the n-th task created by the script.
+ *
+ * Usage:
+ * LoadReplay database script [operations per second, 0 for no limit] [warmup operations]
+ * The database is changed by the replay, run it on a copy.
+ */
+public final class LoadReplay {
+
+	private final HashMap<Integer, MainTask> loadedTasks = new HashMap<Integer, MainTask>();
+	private final ArrayList<MainTask> createdTasks = new ArrayList<MainTask>();
+
+	//Latencies in nanoseconds per operation, in script order of first use
+	private final LinkedHashMap<String, Latencies> latencies = new LinkedHashMap<String, Latencies>();
+	private final LinkedHashMap<String, Latencies> serviceTimes = new LinkedHashMap<String, Latencies>();
+	private int skippedCount = 0;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: LoadReplay database script [operations per second, 0 for no limit] [warmup operations]");
+			return;
+		}
+		double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+		int warmupCount = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+		SQLConnector.setUrl("jdbc:sqlite:" + new File(args[0]).getAbsolutePath());
+		SchemaMigrator.migrate();
+		ViewStateStore.load();
+
+		List<String> script = Files.readAllLines(new File(args[1]).toPath(), StandardCharsets.UTF_8);
+		LoadReplay replay = new LoadReplay();
+		replay.run(script, rate, warmupCount);
+		replay.report();
+
+		AsyncSQLConnector.shutdown();
+		SQLConnector.shutdown();
+	}
+
+	/**
+	 * Runs the operations of a script, starting each one at its scheduled time or as soon as the previous one is finished.
+	 * @param script Lines of the script
+	 * @param rate Operations per second, 0 to run them back to back
+	 * @param warmupCount Number of operations run first without recording their latency
+	 */
+	public void run(List<String> script, double rate, int warmupCount) {
+		long interval = rate > 0 ? (long)(1e9 / rate) : 0;
+		long start = System.nanoTime();
+		int index = 0;
+
+		for (String line : script) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] parts = line.split(" ", 3);
+
+			long scheduled = start + index * interval;
+			long wait = scheduled - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			if (interval == 0) {
+				scheduled = System.nanoTime();
+			}
+
+			long begin = System.nanoTime();
+			boolean done = this.execute(parts[0], parts[1], parts.length > 2 ? parts[2] : "");
+			UnitOfWork.flush();
+			AsyncSQLConnector.awaitWrites();
+			long end = System.nanoTime();
+
+			if (!done) {
+				this.skippedCount++;
+			} else if (index >= warmupCount) {
+				this.latencies.computeIfAbsent(parts[0], operation -> new Latencies()).add(end - scheduled);
+				this.serviceTimes.computeIfAbsent(parts[0], operation -> new Latencies()).add(end - begin);
+			}
+			index++;
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d operations in %.1f s, %.0f operations/s%n", index, seconds, index / seconds);
+	}
+
+	/**
+	 * Runs one operation the way the UI does it.
+	 * @return False if the task of the operation doesn't exist
+	 */
+	private boolean execute(String operation, String target, String argument) {
+		if (operation.equals("create")) {
+			PlanDate planDate = PlanDate.of(LocalDate.parse(target));
+			MainTask task = new MainTask(planDate);
+			planDate.addTask(task);
+			task.setName(argument);
+			this.createdTasks.add(task);
+			return true;
+		}
+
+		MainTask task = this.findTask(target);
+		if (task == null) {
+			return false;
+		}
+		switch (operation) {
+		case "edit":
+			task.setName(argument);
+			break;
+		case "complete":
+			task.setCompleted(true);
+			break;
+		case "move":
+			task.setPlanDate(PlanDate.of(LocalDate.parse(argument)));
+			break;
+		case "delete":
+			task.deleteSQL();
+			task.getPlanDate().removeTask(task);
+			this.loadedTasks.remove(task.getID());
+			if (target.startsWith("#")) {
+				this.createdTasks.set(Integer.parseInt(target.substring(1)) - 1, null);
+			}
+			break;
+		default:
+			System.out.println("Unknown operation " + operation);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param target Database ID, or #n for the n-th created task
+	 * @return MainTask, loaded with the other tasks on its date if needed, or null if it doesn't exist
+	 */
+	private MainTask findTask(String target) {
+		if (target.startsWith("#")) {
+			int index = Integer.parseInt(target.substring(1)) - 1;
+			return index < this.createdTasks.size() ? this.createdTasks.get(index) : null;
+		}
+
+		int iD = Integer.parseInt(target);
+		MainTask task = this.loadedTasks.get(iD);
+		if (task == null) {
+			LocalDate[] date = new LocalDate[1];
+			SQLConnector.read("SELECT Date FROM tasks WHERE ID = ?", new Object[] {iD}, rs -> {
+				try {
+					if (rs.next()) {
+						date[0] = SQLConnector.getDate(rs, "Date");
+					}
+				} catch (SQLException e) {
+					System.out.println(e);
+				}
+			});
+			if (date[0] == null) {
+				return null;
+			}
+
+			PlanDate planDate = PlanDate.of(date[0]);
+			planDate.getTasks();
+			for (MainTask loadedTask : planDate.taskList) {
+				this.loadedTasks.putIfAbsent(loadedTask.getID(), loadedTask);
+			}
+			task = this.loadedTasks.get(iD);
+		}
+		return task;
+	}
+
+	/**
+	 * Prints latency and service time percentiles in milliseconds per operation.
+	 */
+	public void report() {
+		Latencies all = new Latencies();
+		for (Latencies operationLatencies : this.latencies.values()) {
+			all.addAll(operationLatencies);
+		}
+
+		System.out.printf("%-10s %8s %9s %9s %9s %9s %9s %12s%n", "operation", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "service p50");
+		for (Map.Entry<String, Latencies> entry : this.latencies.entrySet()) {
+			LoadReplay.printRow(entry.getKey(), entry.getValue(), this.serviceTimes.get(entry.getKey()));
+		}
+		Latencies allServiceTimes = new Latencies();
+		for (Latencies operationServiceTimes : this.serviceTimes.values()) {
+			allServiceTimes.addAll(operationServiceTimes);
+		}
+		LoadReplay.printRow("all", all, allServiceTimes);
+		if (this.skippedCount > 0) {
+			System.out.println(this.skippedCount + " operations skipped, their task doesn't exist");
+		}
+	}
+
+	private static void printRow(String name, Latencies latencies, Latencies serviceTimes) {
+		System.out.printf("%-10s %8d %9.3f %9.3f %9.3f %9.3f %9.3f %12.3f%n", name, latencies.size(),
+				latencies.percentile(50), latencies.percentile(90), latencies.percentile(99), latencies.percentile(99.9), latencies.percentile(100),
+				serviceTimes.percentile(50));
+	}
+
+	/**
+	 * Recorded latencies in nanoseconds, sorted when a percentile is asked for.
+	 */
+	private static class Latencies {
+
+		private long[] values = new long[1024];
+		private int size = 0;
+
+		void add(long value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+
+		void addAll(Latencies other) {
+			for (int i = 0; i < other.size; i++) {
+				this.add(other.values[i]);
+			}
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		/**
+		 * @param percentile Percentile from 0 to 100
+		 * @return Latency in milliseconds at the percentile, by the nearest rank, 0 if nothing was recorded
+		 */
+		double percentile(double percentile) {
+			if (this.size == 0) {
+				return 0;
+			}
+			Arrays.sort(this.values, 0, this.size);
+			int rank = (int)Math.ceil(percentile / 100 * this.size);
+			return this.values[Math.max(0, Math.min(this.size - 1, rank - 1))] / 1e6;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package application;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of MainTask: saving a changed task with updateSQL() and a UnitOfWork flush, and sorting tasks with compareTo().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MainTaskBenchmark {
+
+	/**
+	 * MainTasks of the first day of a TaskDatabase, changed and saved by each invocation.
+	 */
+	@State(Scope.Thread)
+	public static class Saved {
+
+		@Param({"1000", "100000", "1000000"})
+		public int taskCount;
+
+		private TaskDatabase database;
+		private PlanDate planDate;
+		private int nextTask;
+
+		@Setup(Level.Trial)
+		public void open() throws IOException {
+			this.database = TaskDatabase.open(this.taskCount);
+			this.planDate = PlanDate.of(this.database.getDate(0));
+			this.planDate.getTasks();
+		}
+
+		@TearDown(Level.Trial)
+		public void close() {
+			this.database.close();
+		}
+	}
+
+	/**
+	 * Unsorted MainTasks, a third without a time, copied before each sort.
+	 */
+	@State(Scope.Thread)
+	public static class Unsorted {
+
+		@Param({"1000", "100000", "1000000"})
+		public int taskCount;
+
+		private ArrayList<MainTask> tasks = new ArrayList<MainTask>();
+
+		@Setup(Level.Trial)
+		public void create() {
+			Random random = new Random(this.taskCount);
+			PlanDate planDate = PlanDate.of(TaskDatabase.FIRST_DATE);
+			for (int iD = 1; iD <= this.taskCount; iD++) {
+				LocalTime time = random.nextInt(3) == 0 ? null : LocalTime.of(random.nextInt(24), random.nextInt(4) * 15);
+				this.tasks.add(new MainTask(iD, "Task " + random.nextInt(this.taskCount), planDate, time, false, false, false));
+			}
+		}
+	}
+
+	@Benchmark
+	public int updateSQL(Saved saved) {
+		MainTask task = saved.planDate.taskList.get(saved.nextTask);
+		saved.nextTask = (saved.nextTask + 1) % saved.planDate.taskList.size();
+
+		//Registers the task through updateSQL()
+		task.setCompleted(!task.isCompleted());
+		return UnitOfWork.flush().join();
+	}
+
+	@Benchmark
+	public ArrayList<MainTask> sort(Unsorted unsorted) {
+		ArrayList<MainTask> tasks = new ArrayList<MainTask>(unsorted.tasks);
+		Collections.sort(tasks);
+		return tasks;
+	}
+}
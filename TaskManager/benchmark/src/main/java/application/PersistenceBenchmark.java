@@ -0,0 +1,87 @@
+package application;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of single SQLConnector statements on the tasks table: insert, update by ID and read of one day.
+ * Each trial works on a fresh copy of a TaskDatabase, the rows touched move through the database so page caching doesn't hide the table size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int taskCount;
+
+	private TaskDatabase database;
+	private int nextTask;
+	private int nextDay;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		this.database = TaskDatabase.open(this.taskCount);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		this.database.close();
+	}
+
+	@Benchmark
+	public int insert() {
+		return SQLConnector.insert("INSERT INTO tasks (Name, Date, Time, Completed) VALUES (?,?,?,?)", new Object[] {"Inserted task", this.database.getDate(this.nextDay()), null, false});
+	}
+
+	@Benchmark
+	public void update() {
+		int iD = this.nextTask();
+		SQLConnector.update("UPDATE tasks SET Name = ?, Date = ?, Time = ?, Completed = ? WHERE ID = ?", new Object[] {"Updated task " + iD, this.database.getDate((iD - 1) / TaskDatabase.TASKS_PER_DAY), null, true, iD});
+	}
+
+	@Benchmark
+	public void readDay(Blackhole blackhole) {
+		SQLConnector.read("SELECT * FROM tasks WHERE Date BETWEEN ? AND ?", new Object[] {this.database.getDate(this.nextDay()), this.database.getDate(this.nextDay)}, rs -> {
+			try {
+				while (rs.next()) {
+					blackhole.consume(rs.getString("Name"));
+					blackhole.consume(SQLConnector.getTime(rs, "Time"));
+					blackhole.consume(SQLConnector.getBoolean(rs, "Completed"));
+				}
+			} catch (SQLException e) {
+				System.out.println(e);
+			}
+		});
+	}
+
+	//Step through the tasks and days with a prime stride, so consecutive invocations hit different pages
+	private int nextTask() {
+		this.nextTask = (this.nextTask + 7919) % this.taskCount;
+		return this.nextTask + 1;
+	}
+
+	private int nextDay() {
+		this.nextDay = (this.nextDay + 769) % this.database.getDayCount();
+		return this.nextDay;
+	}
+}
@@ -0,0 +1,81 @@
+package application;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of PlanDate.getTasks(), loading the MainTasks and SubTasks of one day or a week of days as the day and week views do.
+ * The PlanDates stay in the registry while the benchmark holds them, so each load replaces the taskLists of the same PlanDates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanDateBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int taskCount;
+
+	private TaskDatabase database;
+	private int nextDay;
+
+	//Days held for the trial, reused by every invocation
+	private ArrayList<ArrayList<PlanDate>> weeks = new ArrayList<ArrayList<PlanDate>>();
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		this.database = TaskDatabase.open(this.taskCount);
+
+		//Cycle through up to 64 weeks spread over the database
+		int weekCount = Math.max(1, Math.min(64, this.database.getDayCount() / 7));
+		int stride = this.database.getDayCount() / weekCount;
+		for (int i = 0; i < weekCount; i++) {
+			ArrayList<PlanDate> week = new ArrayList<PlanDate>();
+			for (int day = 0; day < 7; day++) {
+				week.add(PlanDate.of(this.database.getDate(i * stride + day)));
+			}
+			this.weeks.add(week);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		this.database.close();
+	}
+
+	@Benchmark
+	public PlanDate getTasksDay() {
+		PlanDate planDate = this.nextWeek().get(0);
+		planDate.getTasks();
+		return planDate;
+	}
+
+	@Benchmark
+	public ArrayList<PlanDate> getTasksWeek() {
+		ArrayList<PlanDate> week = this.nextWeek();
+		PlanDate.getTasks(week);
+		return week;
+	}
+
+	private ArrayList<PlanDate> nextWeek() {
+		this.nextDay = (this.nextDay + 1) % this.weeks.size();
+		return this.weeks.get(this.nextDay);
+	}
+}
@@ -0,0 +1,62 @@
+package application;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of TaskSearch: the first page for a one-letter prefix matching every task, for a task number prefix and for subtask names,
+ * and the page after the first one. Should stay well below 50 ms at 1M tasks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int taskCount;
+
+	@Param({"t", "Task 12", "Subtask 4"})
+	public String text;
+
+	private TaskDatabase database;
+	private int secondPageID;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		this.database = TaskDatabase.open(this.taskCount);
+		TaskSearch.Page page = TaskSearch.search(this.text, 0);
+		this.secondPageID = page.results.isEmpty() ? 0 : page.results.get(page.results.size() - 1).iD;
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		this.database.close();
+	}
+
+	@Benchmark
+	public TaskSearch.Page firstPage() {
+		return TaskSearch.search(this.text, 0);
+	}
+
+	@Benchmark
+	public TaskSearch.Page secondPage() {
+		return TaskSearch.search(this.text, this.secondPageID);
+	}
+}
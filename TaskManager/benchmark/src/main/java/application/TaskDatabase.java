@@ -0,0 +1,137 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic SQLite databases for the benchmarks, with a fixed number of tasks per day and subtasks on every other task.
+ * A template database is generated once per task count and kept in the benchmark directory, each trial works on a fresh copy of it.
+ * The directory is the system property taskmanager.benchmark.dir, or the temporary directory.
+ */
+public final class TaskDatabase {
+
+	//Layout of the generated data
+	public static final int TASKS_PER_DAY = 10;
+	public static final int SUBTASKS_PER_TASK = 2;
+	public static final LocalDate FIRST_DATE = LocalDate.of(2000, 1, 1);
+
+	//Rows written per transaction while generating
+	private static final int BATCH_SIZE = 10000;
+
+	private static final String TASK_INSERT = "INSERT INTO tasks (ID, Name, Date, Time, Completed) VALUES (?,?,?,?,?)";
+	private static final String SUBTASK_INSERT = "INSERT INTO subtasks (Name, MainTaskID, Completed) VALUES (?,?,?)";
+
+	private final int taskCount;
+	private final File file;
+
+	/**
+	 * Copies the template database with a number of tasks to a new file, generating the template first if it doesn't exist, and connects the SQLConnector to it.
+	 * @param taskCount Number of MainTasks in the database
+	 * @return TaskDatabase the SQLConnector is connected to
+	 * @throws IOException If the template can't be copied
+	 */
+	public static TaskDatabase open(int taskCount) throws IOException {
+		File template = TaskDatabase.getTemplate(taskCount);
+		if (!template.exists()) {
+			TaskDatabase.generate(template, taskCount);
+		}
+
+		File file = new File(template.getParentFile(), "taskmanager-bench-" + taskCount + "-trial.db");
+		Files.copy(template.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		SQLConnector.setUrl("jdbc:sqlite:" + file.getAbsolutePath());
+		SchemaMigrator.migrate();
+		return new TaskDatabase(taskCount, file);
+	}
+
+	private TaskDatabase(int taskCount, File file) {
+		this.taskCount = taskCount;
+		this.file = file;
+	}
+
+	/**
+	 * Writes pending changes, disconnects the SQLConnector and deletes the copy of the template.
+	 */
+	public void close() {
+		UnitOfWork.flush();
+		AsyncSQLConnector.awaitWrites();
+		SQLConnector.shutdown();
+		this.file.delete();
+		new File(this.file.getPath() + "-wal").delete();
+		new File(this.file.getPath() + "-shm").delete();
+	}
+
+	/**
+	 * @return Number of days with tasks
+	 */
+	public int getDayCount() {
+		return (this.taskCount + TaskDatabase.TASKS_PER_DAY - 1) / TaskDatabase.TASKS_PER_DAY;
+	}
+
+	/**
+	 * @param day Index of the day, from 0 to getDayCount()
+	 * @return Date of the day
+	 */
+	public LocalDate getDate(int day) {
+		return TaskDatabase.FIRST_DATE.plusDays(day);
+	}
+
+	public int getTaskCount() {
+		return this.taskCount;
+	}
+
+	private static File getTemplate(int taskCount) {
+		File directory = new File(System.getProperty("taskmanager.benchmark.dir", System.getProperty("java.io.tmpdir")));
+		return new File(directory, "taskmanager-bench-" + taskCount + ".db");
+	}
+
+	/**
+	 * Generates a template database in transactions of BATCH_SIZE tasks.
+	 * Written to a temporary file first, so an interrupted run doesn't leave an incomplete template.
+	 * @param template File to write the database to
+	 * @param taskCount Number of MainTasks to generate
+	 * @throws IOException If the generated file can't be moved into place
+	 */
+	private static void generate(File template, int taskCount) throws IOException {
+		File partial = new File(template.getPath() + ".partial");
+		partial.delete();
+		SQLConnector.setUrl("jdbc:sqlite:" + partial.getAbsolutePath());
+		SchemaMigrator.migrate();
+
+		//Same data for every run
+		Random random = new Random(taskCount);
+		for (int first = 1; first <= taskCount; first += TaskDatabase.BATCH_SIZE) {
+			ArrayList<Object[]> tasks = new ArrayList<Object[]>();
+			ArrayList<Object[]> subTasks = new ArrayList<Object[]>();
+			int last = Math.min(taskCount, first + TaskDatabase.BATCH_SIZE - 1);
+			for (int iD = first; iD <= last; iD++) {
+				LocalDate date = TaskDatabase.FIRST_DATE.plusDays((iD - 1) / TaskDatabase.TASKS_PER_DAY);
+				//A third of the tasks have no time
+				LocalTime time = random.nextInt(3) == 0 ? null : LocalTime.of(random.nextInt(24), random.nextInt(4) * 15);
+				tasks.add(new Object[] {iD, "Task " + iD, date, time, random.nextBoolean()});
+
+				if (iD % 2 == 0) {
+					for (int i = 0; i < TaskDatabase.SUBTASKS_PER_TASK; i++) {
+						subTasks.add(new Object[] {"Subtask " + iD + "." + i, iD, random.nextBoolean()});
+					}
+				}
+			}
+
+			LinkedHashMap<String, List<Object[]>> batches = new LinkedHashMap<String, List<Object[]>>();
+			batches.put(TaskDatabase.TASK_INSERT, tasks);
+			batches.put(TaskDatabase.SUBTASK_INSERT, subTasks);
+			SQLConnector.updateBatch(batches);
+		}
+
+		//Checkpoints the WAL into the file
+		SQLConnector.shutdown();
+		Files.move(partial.toPath(), template.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -0,0 +1,291 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes task databases that look like years of real use, and operation scripts for LoadReplay.
+ * Tasks per day are skewed: busy weekdays, quiet weekends, idle days and occasional heavy days. Most tasks have no subtasks, some have many.
+ * Past tasks are mostly completed, future tasks mostly not, and times cluster around the morning, lunch, the end of the afternoon and the evening.
+ * Rows are written with batched statements, one transaction per BATCH_SIZE tasks. The same seed gives the same database.
+ *
+ * Usage:
+ * WorkloadGenerator database [years] [mean tasks per day] [seed]
+ * WorkloadGenerator -script database script [operation count] [seed]
+ */
+public final class WorkloadGenerator {
+
+	//Tasks written per transaction
+	public static final int BATCH_SIZE = 20000;
+
+	//Relative number of tasks per day of the week, monday first
+	private static final double[] WEEKDAY_LOAD = {1.25, 1.2, 1.1, 1.1, 0.95, 0.45, 0.3};
+
+	//Chance of a day without tasks, and spread of the lognormal load per day
+	private static final double IDLE_CHANCE = 0.08;
+	private static final double LOAD_SIGMA = 0.6;
+
+	//Chance of a task without time, and the times of day other tasks cluster around with their weights
+	private static final double NO_TIME_CHANCE = 0.35;
+	private static final int[] TIME_PEAKS = {9 * 60, 13 * 60, 16 * 60 + 30, 19 * 60 + 30};
+	private static final double[] TIME_PEAK_WEIGHTS = {0.4, 0.2, 0.25, 0.15};
+
+	//Chance of a task with subtasks, and of each further subtask
+	private static final double SUBTASK_CHANCE = 0.45;
+	private static final double MORE_SUBTASKS_CHANCE = 0.6;
+	private static final int MAX_SUBTASKS = 12;
+
+	//Completion ratios of tasks before and from today
+	private static final double PAST_COMPLETED = 0.85;
+	private static final double FUTURE_COMPLETED = 0.05;
+
+	//Chance a task with subtasks is shown expanded
+	private static final double EXPANDED_CHANCE = 0.05;
+
+	//Share of each operation in generated scripts: create, edit, complete, move, delete
+	private static final String[] OPERATIONS = {"create", "edit", "complete", "move", "delete"};
+	private static final double[] OPERATION_WEIGHTS = {0.3, 0.25, 0.25, 0.1, 0.1};
+
+	private static final String[] VERBS = {"Call", "Email", "Review", "Plan", "Buy", "Fix", "Write", "Clean", "Prepare", "Pay", "Book", "Read"};
+	private static final String[] OBJECTS = {"report", "groceries", "dentist", "meeting notes", "invoice", "bike", "presentation", "garden", "budget", "train tickets", "kitchen", "mom"};
+
+	private static final String TASK_INSERT = "INSERT INTO tasks (ID, Name, Date, Time, Completed) VALUES (?,?,?,?,?)";
+	private static final String SUBTASK_INSERT = "INSERT INTO subtasks (Name, MainTaskID, Completed) VALUES (?,?,?)";
+	private static final String VIEWSTATE_INSERT = "INSERT INTO viewstate (TaskID, Expanded, Editmode) VALUES (?,?,?)";
+
+	private final Random random;
+
+	private WorkloadGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("-script")) {
+			int operationCount = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+			long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+			SQLConnector.setUrl("jdbc:sqlite:" + new File(args[1]).getAbsolutePath());
+			SchemaMigrator.migrate();
+			new WorkloadGenerator(seed).writeScript(new File(args[2]), operationCount);
+		} else if (args.length >= 1) {
+			int years = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+			double meanTasksPerDay = args.length > 2 ? Double.parseDouble(args[2]) : 8;
+			long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+			new WorkloadGenerator(seed).generate(new File(args[0]), years, meanTasksPerDay);
+		} else {
+			System.out.println("Usage: WorkloadGenerator database [years] [mean tasks per day] [seed]");
+			System.out.println("       WorkloadGenerator -script database script [operation count] [seed]");
+			return;
+		}
+		AsyncSQLConnector.shutdown();
+		SQLConnector.shutdown();
+	}
+
+	/**
+	 * Writes a new database with tasks from a number of years ago until two months from today.
+	 * @param file Database file, replaced if it exists
+	 * @param years Number of years of tasks
+	 * @param meanTasksPerDay Average number of tasks per day
+	 */
+	public void generate(File file, int years, double meanTasksPerDay) {
+		long start = System.nanoTime();
+		file.delete();
+
+		//No journal syncs while generating, the file is thrown away if generating fails
+		SQLiteProfile profile = new SQLiteProfile();
+		profile.setJournalMode(SQLiteProfile.JournalMode.MEMORY);
+		profile.setSynchronous(SQLiteProfile.Synchronous.OFF);
+		profile.setCheckpointInterval(0);
+		SQLConnector.setProfile(profile);
+		SQLConnector.setUrl("jdbc:sqlite:" + file.getAbsolutePath());
+		SchemaMigrator.migrate();
+
+		LocalDate today = LocalDate.now();
+		LocalDate endDate = today.plusMonths(2);
+		int iD = 0;
+		int subTaskCount = 0;
+		ArrayList<Object[]> tasks = new ArrayList<Object[]>();
+		ArrayList<Object[]> subTasks = new ArrayList<Object[]>();
+		ArrayList<Object[]> viewStates = new ArrayList<Object[]>();
+
+		for (LocalDate date = today.minusYears(years); !date.isAfter(endDate); date = date.plusDays(1)) {
+			double completedChance = date.isBefore(today) ? WorkloadGenerator.PAST_COMPLETED : WorkloadGenerator.FUTURE_COMPLETED;
+			int taskCount = this.nextTaskCount(date, meanTasksPerDay);
+			for (int i = 0; i < taskCount; i++) {
+				iD++;
+				tasks.add(new Object[] {iD, this.nextName(), date, this.nextTime(), this.random.nextDouble() < completedChance});
+
+				int fanOut = this.nextFanOut();
+				for (int j = 0; j < fanOut; j++) {
+					subTasks.add(new Object[] {"Step " + (j + 1), iD, this.random.nextDouble() < completedChance});
+				}
+				subTaskCount += fanOut;
+				if (fanOut > 0 && this.random.nextDouble() < WorkloadGenerator.EXPANDED_CHANCE) {
+					viewStates.add(new Object[] {iD, true, false});
+				}
+			}
+
+			if (tasks.size() >= WorkloadGenerator.BATCH_SIZE) {
+				WorkloadGenerator.write(tasks, subTasks, viewStates);
+			}
+		}
+		WorkloadGenerator.write(tasks, subTasks, viewStates);
+
+		//Reopen with the default profile, so the database is left in WAL mode like the application leaves it
+		SQLConnector.setProfile(new SQLiteProfile());
+		SQLConnector.shutdown();
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%s: %d days, %d tasks, %d subtasks in %.1f s, %.0f rows/s%n", file, ChronoUnit.DAYS.between(today.minusYears(years), endDate) + 1, iD, subTaskCount, seconds, (iD + subTaskCount) / seconds);
+	}
+
+	/**
+	 * Writes an operation script for LoadReplay, working on tasks from a month before until a month after today.
+	 * Tasks are referred to by ID, or as #n for the n-th task created by the script; deleted tasks aren't used again.
+	 * @param file Script file, replaced if it exists
+	 * @param operationCount Number of operations
+	 * @throws IOException If the script can't be written
+	 */
+	public void writeScript(File file, int operationCount) throws IOException {
+		LocalDate today = LocalDate.now();
+		ArrayList<String> targets = new ArrayList<String>();
+		SQLConnector.read("SELECT ID FROM tasks WHERE Date BETWEEN ? AND ?", new Object[] {today.minusMonths(1), today.plusMonths(1)}, rs -> {
+			try {
+				while (rs.next()) {
+					targets.add(Integer.toString(rs.getInt("ID")));
+				}
+			} catch (SQLException e) {
+				System.out.println(e);
+			}
+		});
+
+		int createdCount = 0;
+		try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+			writer.println("#operation task|date [argument]");
+			for (int i = 0; i < operationCount; i++) {
+				String operation = this.pick(WorkloadGenerator.OPERATIONS, WorkloadGenerator.OPERATION_WEIGHTS);
+				if (targets.isEmpty()) {
+					operation = "create";
+				}
+				LocalDate date = today.plusDays(this.random.nextInt(61) - 30);
+
+				switch (operation) {
+				case "create":
+					createdCount++;
+					targets.add("#" + createdCount);
+					writer.println("create " + date + " " + this.nextName());
+					break;
+				case "edit":
+					writer.println("edit " + this.pickTarget(targets) + " " + this.nextName());
+					break;
+				case "complete":
+					writer.println("complete " + this.pickTarget(targets));
+					break;
+				case "move":
+					writer.println("move " + this.pickTarget(targets) + " " + date);
+					break;
+				case "delete":
+					writer.println("delete " + targets.remove(this.random.nextInt(targets.size())));
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		System.out.println(file + ": " + operationCount + " operations");
+	}
+
+	private static void write(List<Object[]> tasks, List<Object[]> subTasks, List<Object[]> viewStates) {
+		LinkedHashMap<String, List<Object[]>> batches = new LinkedHashMap<String, List<Object[]>>();
+		batches.put(WorkloadGenerator.TASK_INSERT, tasks);
+		batches.put(WorkloadGenerator.SUBTASK_INSERT, subTasks);
+		batches.put(WorkloadGenerator.VIEWSTATE_INSERT, viewStates);
+		SQLConnector.updateBatch(batches);
+		tasks.clear();
+		subTasks.clear();
+		viewStates.clear();
+	}
+
+	/**
+	 * @return Number of tasks on a date: weekday load times a lognormal factor with mean 1, rounded at random
+	 */
+	private int nextTaskCount(LocalDate date, double meanTasksPerDay) {
+		if (this.random.nextDouble() < WorkloadGenerator.IDLE_CHANCE) {
+			return 0;
+		}
+		double sigma = WorkloadGenerator.LOAD_SIGMA;
+		double factor = Math.exp(sigma * this.random.nextGaussian() - sigma * sigma / 2);
+		double load = meanTasksPerDay / (1 - WorkloadGenerator.IDLE_CHANCE) * WorkloadGenerator.weekdayLoad(date.getDayOfWeek()) * factor;
+		int count = (int)load;
+		return this.random.nextDouble() < load - count ? count + 1 : count;
+	}
+
+	//Weekday load relative to the average day
+	private static double weekdayLoad(DayOfWeek day) {
+		double total = 0;
+		for (double load : WorkloadGenerator.WEEKDAY_LOAD) {
+			total += load;
+		}
+		return WorkloadGenerator.WEEKDAY_LOAD[day.getValue() - 1] * WorkloadGenerator.WEEKDAY_LOAD.length / total;
+	}
+
+	/**
+	 * @return Time near one of the peaks, rounded to a quarter of an hour, or null for a task without time
+	 */
+	private LocalTime nextTime() {
+		if (this.random.nextDouble() < WorkloadGenerator.NO_TIME_CHANCE) {
+			return null;
+		}
+		int peak = WorkloadGenerator.TIME_PEAKS[this.pickIndex(WorkloadGenerator.TIME_PEAK_WEIGHTS)];
+		int minute = (int)Math.round((peak + this.random.nextGaussian() * 60) / 15) * 15;
+		return LocalTime.of(0, 0).plusMinutes(Math.max(0, Math.min(23 * 60 + 45, minute)));
+	}
+
+	/**
+	 * @return Number of subtasks of a task, geometrically distributed for tasks that have them
+	 */
+	private int nextFanOut() {
+		if (this.random.nextDouble() >= WorkloadGenerator.SUBTASK_CHANCE) {
+			return 0;
+		}
+		int count = 1;
+		while (count < WorkloadGenerator.MAX_SUBTASKS && this.random.nextDouble() < WorkloadGenerator.MORE_SUBTASKS_CHANCE) {
+			count++;
+		}
+		return count;
+	}
+
+	private String nextName() {
+		return WorkloadGenerator.VERBS[this.random.nextInt(WorkloadGenerator.VERBS.length)] + " " + WorkloadGenerator.OBJECTS[this.random.nextInt(WorkloadGenerator.OBJECTS.length)];
+	}
+
+	//Recently added tasks are picked more often
+	private String pickTarget(List<String> targets) {
+		int index = targets.size() - 1 - (int)(Math.abs(this.random.nextGaussian()) * targets.size() / 3);
+		return targets.get(Math.max(0, index));
+	}
+
+	private String pick(String[] values, double[] weights) {
+		return values[this.pickIndex(weights)];
+	}
+
+	private int pickIndex(double[] weights) {
+		double value = this.random.nextDouble();
+		for (int i = 0; i < weights.length - 1; i++) {
+			value -= weights[i];
+			if (value < 0) {
+				return i;
+			}
+		}
+		return weights.length - 1;
+	}
+}
@@ -0,0 +1,169 @@
+package application;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javafx.application.Platform;
+
+/**
+ * Asynchronous variant of the SQLConnector API, keeping database I/O off the JavaFX application thread.
+ * Writes run in order on a single writer thread. Reads run in parallel on reader threads, after all writes submitted before them.
+ * Methods return CompletableFutures; continue on the JavaFX application thread with thenAcceptAsync(..., AsyncSQLConnector.FX_THREAD).
+ */
+public final class AsyncSQLConnector {
+
+	//Number of reader threads
+	public static final int READER_COUNT = 2;
+
+	//Executor running tasks on the JavaFX application thread
+	public static final Executor FX_THREAD = Platform::runLater;
+
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(AsyncSQLConnector.threadFactory("SQLite writer"));
+	private static final ExecutorService readers = Executors.newFixedThreadPool(AsyncSQLConnector.READER_COUNT, AsyncSQLConnector.threadFactory("SQLite reader"));
+
+	//Most recently submitted write, reads wait for it so they see all earlier writes
+	private static CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null);
+
+	/**
+	 * Run work on the writer thread after all previously submitted writes.
+	 * @param work Database work to run, reading any IDs generated by earlier writes when it runs
+	 * @return CompletableFuture completed with the result of the work
+	 */
+	public static synchronized <T> CompletableFuture<T> submitWrite(Supplier<T> work) {
+		CompletableFuture<T> future = CompletableFuture.supplyAsync(work, AsyncSQLConnector.writer);
+		AsyncSQLConnector.lastWrite = future;
+		return future;
+	}
+
+	/**
+	 * Run work on a reader thread once all previously submitted writes are finished.
+	 * @param work Database work to run
+	 * @return CompletableFuture completed with the result of the work
+	 */
+	public static <T> CompletableFuture<T> submitRead(Supplier<T> work) {
+		CompletableFuture<?> previousWrite;
+		synchronized (AsyncSQLConnector.class) {
+			previousWrite = AsyncSQLConnector.lastWrite;
+		}
+		//Run the read regardless of whether the write failed
+		return previousWrite.handle((result, exception) -> null).thenApplyAsync(ignored -> work.get(), AsyncSQLConnector.readers);
+	}
+
+	/**
+	 * Insert data into SQLite database on the writer thread.
+	 * @param insertString SQL command string, see SQLConnector.insert()
+	 * @param data Array of values to insert
+	 * @return CompletableFuture completed with the auto-incremented ID of the inserted row
+	 */
+	public static CompletableFuture<Integer> insert(String insertString, Object[] data) {
+		return AsyncSQLConnector.submitWrite(() -> SQLConnector.insert(insertString, data));
+	}
+
+	/**
+	 * Read data from SQLite database on a reader thread.
+	 * @param readString SQL command string, see SQLConnector.read()
+	 * @param data Array of values for the parameters of the query
+	 * @param processor Function turning the ResultSet into a result before the connection is returned to the pool
+	 * @return CompletableFuture completed with the result of the processor, or null if the query failed
+	 */
+	public static <T> CompletableFuture<T> read(String readString, Object[] data, Function<ResultSet, T> processor) {
+		return AsyncSQLConnector.submitRead(() -> {
+			Object[] result = new Object[1];
+			SQLConnector.read(readString, data, rs -> {
+				result[0] = processor.apply(rs);
+			});
+			@SuppressWarnings("unchecked")
+			T typedResult = (T)result[0];
+			return typedResult;
+		});
+	}
+
+	/**
+	 * Update data in SQLite database on the writer thread.
+	 * @param updateString SQL command string, see SQLConnector.update()
+	 * @param data Array of values to update
+	 * @return CompletableFuture completed when the update is written
+	 */
+	public static CompletableFuture<Void> update(String updateString, Object[] data) {
+		return AsyncSQLConnector.submitWrite(() -> {
+			SQLConnector.update(updateString, data);
+			return null;
+		});
+	}
+
+	/**
+	 * Update many rows in SQLite database in one transaction on the writer thread.
+	 * @param batches Map of SQL command strings to data arrays, see SQLConnector.updateBatch()
+	 * @return CompletableFuture completed when the transaction is committed
+	 */
+	public static CompletableFuture<Void> updateBatch(Map<String, List<Object[]>> batches) {
+		return AsyncSQLConnector.submitWrite(() -> {
+			SQLConnector.updateBatch(batches);
+			return null;
+		});
+	}
+
+	/**
+	 * Delete data in SQLite database on the writer thread.
+	 * @param deleteString SQL command string, see SQLConnector.delete()
+	 * @param data Values for the parameters of the statement
+	 * @return CompletableFuture completed when the delete is written
+	 */
+	public static CompletableFuture<Void> delete(String deleteString, Object... data) {
+		return AsyncSQLConnector.submitWrite(() -> {
+			SQLConnector.delete(deleteString, data);
+			return null;
+		});
+	}
+
+	/**
+	 * Block until all writes submitted so far are finished.
+	 */
+	public static void awaitWrites() {
+		CompletableFuture<?> previousWrite;
+		synchronized (AsyncSQLConnector.class) {
+			previousWrite = AsyncSQLConnector.lastWrite;
+		}
+		previousWrite.handle((result, exception) -> null).join();
+	}
+
+	/**
+	 * @return True if writes are queued or running on the writer thread
+	 */
+	public static synchronized boolean hasPendingWrites() {
+		return !AsyncSQLConnector.lastWrite.isDone();
+	}
+
+	/**
+	 * Finish all submitted writes and stop the writer and reader threads. Called when the application exits.
+	 */
+	public static void shutdown() {
+		AsyncSQLConnector.awaitWrites();
+		AsyncSQLConnector.writer.shutdown();
+		AsyncSQLConnector.readers.shutdown();
+		try {
+			AsyncSQLConnector.readers.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + " " + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -2,15 +2,23 @@ package application;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
 import java.time.temporal.WeekFields;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import application.Main.ViewMode;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.ContentDisplay;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.ColumnConstraints;
@@ -19,6 +27,8 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 
 /**
@@ -27,14 +37,19 @@ import javafx.scene.text.Font;
  */
 public class CalendarPane extends VBox {
 
-	PlanDate planDate = new PlanDate(LocalDate.now());
-	ArrayList<PlanDate> retrievedDates = new ArrayList<PlanDate>();
+	PlanDate planDate = PlanDate.of(LocalDate.now());
 	GridPane daysGridPane;
+	RenderOverlay renderOverlay;
 	Button dateButton;
 	Button previousDateButton;
 	Button nextDateButton;
 	ViewMode currentViewMode;
 
+	//Counts calls to update, so results of an older update arriving late are ignored
+	private int updateCount = 0;
+	//PlanDates with a day box in daysGridPane
+	private List<PlanDate> shownDates = new ArrayList<PlanDate>();
+
 	public CalendarPane() {
 		//Task display layer
 		//Date panel
@@ -72,7 +87,7 @@ public class CalendarPane extends VBox {
 		this.previousDateButton = new Button();
 		this.previousDateButton.setMinSize(34, 33);
 		this.previousDateButton.setMaxSize(34, 33);
-		Image previousImage = new Image(getClass().getResourceAsStream("ButtonPrevious.png"));
+		Image previousImage = IconCache.get("ButtonPrevious.png");
 		ImageView previousImageView = new ImageView(previousImage);
 		previousImageView.fitHeightProperty().bind(this.previousDateButton.heightProperty());
 		previousImageView.fitWidthProperty().bind(this.previousDateButton.widthProperty());
@@ -82,7 +97,7 @@ public class CalendarPane extends VBox {
 		this.nextDateButton = new Button();
 		this.nextDateButton.setMinSize(34, 33);
 		this.nextDateButton.setMaxSize(34, 33);
-		Image nextImage = new Image(getClass().getResourceAsStream("ButtonNext.png"));
+		Image nextImage = IconCache.get("ButtonNext.png");
 		ImageView nextImageView = new ImageView(nextImage);
 		nextImageView.fitHeightProperty().bind(this.nextDateButton.heightProperty());
 		nextImageView.fitWidthProperty().bind(this.nextDateButton.widthProperty());
@@ -92,13 +107,14 @@ public class CalendarPane extends VBox {
 		Button todayButton = new Button();
 		todayButton.setMinSize(34, 33);
 		todayButton.setMaxSize(34, 33);
-		Image todayImage = new Image(getClass().getResourceAsStream("ButtonToday.png"));
+		Image todayImage = IconCache.get("ButtonToday.png");
 		ImageView todayImageView = new ImageView(todayImage);
 		todayImageView.fitHeightProperty().bind(todayButton.heightProperty());
 		todayImageView.fitWidthProperty().bind(todayButton.widthProperty());
 		todayButton.setGraphic(todayImageView);
 		todayButton.setOnAction(e -> {
-			planDate = new PlanDate(LocalDate.now());
+			Prefetcher.cancel();
+			planDate = PlanDate.of(LocalDate.now());
 			this.update(this.currentViewMode);
 		});
 
@@ -109,25 +125,46 @@ public class CalendarPane extends VBox {
 		//GridPane with Panes for a day, week or month
 		this.daysGridPane = new GridPane();
 
-		//Enclose GridPane in ScrollPane
-		ScrollPane scrollPane = new ScrollPane(daysGridPane);
+		//Rendering timings in the top right corner, hidden at start
+		this.renderOverlay = new RenderOverlay(this.daysGridPane);
+
+		//Enclose GridPane in ScrollPane, wrapped so the overlay can time its layout
+		ScrollPane scrollPane = new ScrollPane(this.renderOverlay.wrap(daysGridPane));
 		scrollPane.setFitToWidth(true);
 		scrollPane.setFitToHeight(true);
 
 		//scrollPane.setFitToHeight(true);
 		scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-		scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);
-		dateStack.getChildren().addAll(scrollPane, datePicker);
+		//Days scroll their own task lists, the ScrollPane only scrolls when the days don't fit
+		scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
+
+		StackPane.setAlignment(this.renderOverlay, Pos.TOP_RIGHT);
+		dateStack.getChildren().addAll(scrollPane, datePicker, this.renderOverlay);
 
 		//Update display elements
 		this.update(ViewMode.day);
 	}
 
+	/**
+	 * Shows the Tasks of a date in day view, for example a date found by searching.
+	 * @param date Date to show
+	 */
+	void showDate(LocalDate date) {
+		Prefetcher.cancel();
+		this.planDate = PlanDate.of(date);
+		this.update(ViewMode.day);
+	}
+
 	/**
 	 * Updates CalendarPane to show Tasks for the current PlanDate.
-	 * @param viewMode ViewMode for the CalendarPane; options are ViewMode.day for one day or ViewMode.week for seven days.
+	 * @param viewMode ViewMode for the CalendarPane; options are ViewMode.day for one day, ViewMode.week for seven days or ViewMode.month for summaries of the days in a month.
 	 */
 	void update(ViewMode viewMode) {
+		Metrics.Sample sample = Metrics.start("calendar.update");
+		//Until the days are on screen, including loading their tasks
+		Metrics.Sample showSample = Metrics.start("calendar.show");
+		this.renderOverlay.markNavigation();
+
 		//Set UI guidelines
 		this.currentViewMode = viewMode;
 
@@ -142,43 +179,88 @@ public class CalendarPane extends VBox {
 			rowLength = 1;
 			startDate = planDate.date;
 			titleString = startDate.getDayOfWeek().toString() + " " + startDate.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
-		} else { //viewMode is week
+		} else if (this.currentViewMode == ViewMode.week) {
 			daysShown = 7;
 			rowLength = 2;
 			startDate = planDate.date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
 			titleString = "WEEK " + startDate.get(WeekFields.of(DayOfWeek.MONDAY, 4).weekOfWeekBasedYear()) + ", " + startDate.getMonth().toString() + " " + startDate.format(DateTimeFormatter.ofPattern("yyyy"));
-		}
-
-		//Clear
-		this.daysGridPane.getChildren().clear();
-		this.daysGridPane.getColumnConstraints().clear();
-		
-		//Set column constraints
-		ColumnConstraints cc = new ColumnConstraints();
-		cc.setPercentWidth(100d / rowLength);
-		for (int i = 0; i < rowLength; i++) {
-			this.daysGridPane.getColumnConstraints().add(cc);
+		} else { //viewMode is month, six weeks starting on the monday on or before the first of the month
+			daysShown = 42;
+			rowLength = 7;
+			startDate = planDate.date.withDayOfMonth(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+			titleString = planDate.date.getMonth().toString() + " " + planDate.date.format(DateTimeFormatter.ofPattern("yyyy"));
 		}
 
 		//Set date button to display date
 		this.dateButton.setText(titleString);
 
-		//Set next and previous date buttons to skip specified number of days
+		//Set next and previous date buttons to skip specified number of days, or a month in month view
 		this.nextDateButton.setOnAction(e -> {
-			planDate = new PlanDate(planDate.date.plusDays(daysShown));
+			planDate = PlanDate.of(this.currentViewMode == ViewMode.month ? planDate.date.plusMonths(1) : planDate.date.plusDays(daysShown));
 			this.update(this.currentViewMode);
 		});
 		this.previousDateButton.setOnAction(e -> {
-			planDate = new PlanDate(planDate.date.minusDays(daysShown));
+			planDate = PlanDate.of(this.currentViewMode == ViewMode.month ? planDate.date.minusMonths(1) : planDate.date.minusDays(daysShown));
 			this.update(this.currentViewMode);
 		});
+
+		int update = ++this.updateCount;
+		if (this.currentViewMode == ViewMode.month) {
+			this.showMonth(update, startDate, daysShown, showSample);
+			sample.stop();
+			return;
+		}
 		
+		//Take shown days from the cache, collect the ones that need loading
+		ArrayList<PlanDate> showDates = new ArrayList<PlanDate>();
+		ArrayList<PlanDate> missingDates = new ArrayList<PlanDate>();
+		for (int i = 0; i < daysShown; i++) {
+			PlanDate showDate = PlanDate.of(startDate.plusDays(i));
+			if (PlanDateCache.get(showDate.date) == null) {
+				missingDates.add(showDate);
+			}
+			showDates.add(showDate);
+		}
+
+		if (missingDates.isEmpty()) {
+			this.showDays(showDates, rowLength);
+			Prefetcher.prefetch(startDate, daysShown);
+			showSample.stop();
+			sample.stop();
+			return;
+		}
+
+		//Get tasks for all missing days at once, off the JavaFX application thread
+		PlanDate.getTasksAsync(missingDates).thenAccept(loadedDates -> {
+			PlanDateCache.putAll(loadedDates);
+			//Skip results of an update that was overtaken by a newer one
+			if (update == this.updateCount) {
+				this.showDays(showDates, rowLength);
+				Prefetcher.prefetch(startDate, daysShown);
+				showSample.stop();
+			}
+		}).exceptionally(e -> {
+			System.out.println(e);
+			showSample.fail();
+			return null;
+		});
+		sample.stop();
+	}
+
+	/**
+	 * Replaces the contents of daysGridPane with boxes for PlanDates.
+	 * @param showDates PlanDates to show, with their tasks loaded
+	 * @param rowLength Number of day boxes per row
+	 */
+	private void showDays(List<PlanDate> showDates, int rowLength) {
+		int daysShown = showDates.size();
+		this.clearDays(rowLength);
+		this.shownDates = showDates;
+
 		//Box in grid for each day
 		for (int i = 0; i < daysShown; i++) {
-			PlanDate showDate = new PlanDate(startDate.plusDays(i));
-			showDate.getTasks();
+			PlanDate showDate = showDates.get(i);
 			VBox dayBox = showDate.createDayBox();
-			showDate.updateTaskBox();
 			this.daysGridPane.add(dayBox, i % rowLength, i / rowLength);
 		}
 
@@ -187,16 +269,123 @@ public class CalendarPane extends VBox {
 			weekBox.setStyle("-fx-border-color: grey; -fx-border-width: 1 0 1 1;");
 			this.daysGridPane.add(weekBox, 7 % rowLength, 7 / rowLength);
 		}
+		this.renderOverlay.markContentShown();
 	}
 
 	/**
-	 * Extends HBox. Holds buttons corresponding to days and weeks in a month. Buttons update the Calendarpane to show that day or week.
+	 * Shows summaries of the days in a month, read with one aggregate query. Tasks of a day are only loaded when it's opened.
+	 * @param update Count of the update showing the month, the summaries aren't shown if a newer update started
+	 * @param startDate First shown date
+	 * @param daysShown Number of shown days
+	 * @param showSample Timing of the update, stopped once the summaries are shown
+	 */
+	private void showMonth(int update, LocalDate startDate, int daysShown, Metrics.Sample showSample) {
+		Month month = planDate.date.getMonth();
+		DaySummary.getMonthAsync(YearMonth.from(planDate.date)).thenAcceptAsync(summaries -> {
+			//Skip results of an update that was overtaken by a newer one
+			if (update != this.updateCount) {
+				return;
+			}
+			this.clearDays(7);
+			this.shownDates = new ArrayList<PlanDate>();
+
+			//Box in grid for each day
+			for (int i = 0; i < daysShown; i++) {
+				LocalDate date = startDate.plusDays(i);
+				DaySummary summary = summaries == null ? null : summaries.get(date);
+				if (summary == null) {
+					summary = DaySummary.empty(date);
+				}
+				this.daysGridPane.add(this.createSummaryBox(summary, date.getMonth() == month), i % 7, i / 7);
+			}
+			this.renderOverlay.markContentShown();
+			showSample.stop();
+		}, AsyncSQLConnector.FX_THREAD).exceptionally(e -> {
+			System.out.println(e);
+			showSample.fail();
+			return null;
+		});
+	}
+
+	/**
+	 * Creates a box showing the summary of a day in month view. Clicking it opens the day.
+	 * @param summary Summary of the day
+	 * @param inMonth False for days of the previous or next month, shown in grey
+	 * @return VBox with day number, completed and total task count and the first task names
+	 */
+	private VBox createSummaryBox(DaySummary summary, boolean inMonth) {
+		Metrics.Sample sample = Metrics.start("pane.summaryBox");
+		VBox summaryBox = new VBox(1);
+		summaryBox.setPadding(new Insets(0, 3, 3, 3));
+		summaryBox.setStyle("-fx-border-color: grey; -fx-border-width: 1 0 1 1;");
+		summaryBox.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+		GridPane.setHgrow(summaryBox, Priority.ALWAYS);
+		GridPane.setVgrow(summaryBox, Priority.ALWAYS);
+
+		//Day of month label, black border for the current date
+		Label dayLabel = new Label(summary.date.format(DateTimeFormatter.ofPattern("dd")));
+		dayLabel.setFont(new Font(dayLabel.getFont().getName(), 12));
+		if (!inMonth) {
+			dayLabel.setStyle("-fx-text-fill: grey;");
+		}
+		if (summary.date.equals(LocalDate.now())) {
+			summaryBox.setStyle("-fx-border-color: black; -fx-border-width: 1;");
+		}
+		summaryBox.getChildren().add(dayLabel);
+
+		//Completed and total tasks, and first task names
+		if (summary.taskCount > 0) {
+			Label countLabel = new Label(summary.completedCount + "/" + summary.taskCount);
+			countLabel.setFont(new Font(countLabel.getFont().getName(), 11));
+			summaryBox.getChildren().add(countLabel);
+			for (String name : summary.names) {
+				Label nameLabel = new Label(name);
+				nameLabel.setFont(new Font(nameLabel.getFont().getName(), 11));
+				summaryBox.getChildren().add(nameLabel);
+			}
+			if (summary.taskCount > summary.names.size()) {
+				summaryBox.getChildren().add(new Label("..."));
+			}
+		}
+
+		//Open day, loading its tasks
+		summaryBox.setOnMouseClicked(e -> {
+			Prefetcher.cancel();
+			planDate = PlanDate.of(summary.date);
+			this.update(ViewMode.day);
+		});
+
+		sample.stop();
+		return summaryBox;
+	}
+
+	/**
+	 * Removes all day boxes from daysGridPane, detaching the task lists of the shown days, and sets the number of columns.
+	 * @param rowLength Number of day boxes per row
+	 */
+	private void clearDays(int rowLength) {
+		for (PlanDate shownDate : this.shownDates) {
+			shownDate.clearDayBox();
+		}
+		this.daysGridPane.getChildren().clear();
+		this.daysGridPane.getColumnConstraints().clear();
+
+		//Set column constraints
+		ColumnConstraints cc = new ColumnConstraints();
+		cc.setPercentWidth(100d / rowLength);
+		for (int i = 0; i < rowLength; i++) {
+			this.daysGridPane.getColumnConstraints().add(cc);
+		}
+	}
+
+	/**
+	 * Extends HBox. Holds buttons corresponding to days and weeks in a month and the month itself. Buttons update the Calendarpane to show that day, week or month.
 	 */
 	class DatePicker extends HBox {
 		CalendarPane calendarPane;
 		LocalDate pickerDate;
 		GridPane dateGrid;
-		Label dateLabel;
+		Button monthButton;
 
 		/**
 		 * @param calendarPane Calendarpane linked to this DatePicker will update to show tasks for the picked date.
@@ -223,12 +412,19 @@ public class CalendarPane extends VBox {
 			//HBox for date title buttons
 			HBox datePane = new HBox();
 
-			//Month and year label
-			this.dateLabel = new Label();
-			this.dateLabel.setMinHeight(31);
-			this.dateLabel.setMaxWidth(Double.MAX_VALUE);
-			HBox.setHgrow(dateLabel, Priority.ALWAYS);
-			this.dateLabel.setAlignment(Pos.BASELINE_CENTER);
+			//Month and year button
+			this.monthButton = new Button();
+			this.monthButton.setMinHeight(31);
+			this.monthButton.setMaxWidth(Double.MAX_VALUE);
+			HBox.setHgrow(monthButton, Priority.ALWAYS);
+			this.monthButton.setAlignment(Pos.BASELINE_CENTER);
+			//Hide DatePicker and display month view for the month when clicked
+			this.monthButton.setOnAction(e -> {
+				this.setVisible(false);
+				Prefetcher.cancel();
+				planDate = PlanDate.of(this.pickerDate.withDayOfMonth(1));
+				this.calendarPane.update(ViewMode.month);
+			});
 
 			//Previous month button
 			Button previousDayButton = new Button("<");
@@ -248,7 +444,9 @@ public class CalendarPane extends VBox {
 			todayButton.setOnAction(e -> {
 				this.pickerDate = LocalDate.now();
 				this.setVisible(false);
-				planDate = new PlanDate(this.pickerDate);
+				//Jumping away makes prefetched days around the old range useless
+				Prefetcher.cancel();
+				planDate = PlanDate.of(this.pickerDate);
 				this.calendarPane.update(ViewMode.day);
 			});
 
@@ -263,7 +461,7 @@ public class CalendarPane extends VBox {
 			});
 
 			//Add datebuttons to bar
-			datePane.getChildren().addAll(previousDayButton, todayButton, this.dateLabel, nextDayButton);
+			datePane.getChildren().addAll(previousDayButton, todayButton, this.monthButton, nextDayButton);
 
 			//Datepicker pane
 			this.dateGrid = new GridPane();	
@@ -290,12 +488,13 @@ public class CalendarPane extends VBox {
 			}
 
 			//Set date title
-			this.dateLabel.setText(this.pickerDate.getMonth().toString() + " " + this.pickerDate.toString().substring(0, 4));
+			this.monthButton.setText(this.pickerDate.getMonth().toString() + " " + this.pickerDate.toString().substring(0, 4));
 
 			//Initialize starting date
 			LocalDate startDate = this.pickerDate.withDayOfMonth(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
 
 			//Create buttons for 42 dates
+			Button[] dateButtons = new Button[42];
 			for (int i = 0; i < 42; i++) {
 				//Initialize PlanDate from a number of days after starting date
 				LocalDate followingDate = startDate.plusDays(i);
@@ -322,10 +521,12 @@ public class CalendarPane extends VBox {
 				dateButton.setOnAction(e -> {
 					this.pickerDate = followingDate;
 					this.setVisible(false);
-					planDate = new PlanDate(this.pickerDate);
+					Prefetcher.cancel();
+					planDate = PlanDate.of(this.pickerDate);
 					this.calendarPane.update(ViewMode.day);
 				});
 				dateGrid.add(dateButton, 1 + i % 7, 1 + i / 7);
+				dateButtons[i] = dateButton;
 
 				//Add buttons for weeks
 				if (i % 7 == 0) {
@@ -337,12 +538,56 @@ public class CalendarPane extends VBox {
 					weekButton.setOnAction(e -> {
 						this.pickerDate = followingDate;
 						this.setVisible(false);
-						planDate = new PlanDate(this.pickerDate);
+						Prefetcher.cancel();
+						planDate = PlanDate.of(this.pickerDate);
 						this.calendarPane.update(ViewMode.week);
 					});
 					dateGrid.add(weekButton, 0, 1 + i / 7);
 				}
 			}
+
+			//Show task density once the summaries are there, right away for cached months
+			YearMonth month = YearMonth.from(this.pickerDate);
+			CompletableFuture<Map<LocalDate, DaySummary>> summaries = DaySummary.getMonthAsync(month);
+			if (summaries.isDone()) {
+				this.showDensity(startDate, dateButtons, summaries.getNow(null));
+			} else {
+				summaries.thenAcceptAsync(loadedSummaries -> {
+					//Skip if the picker moved to another month meanwhile
+					if (month.equals(YearMonth.from(this.pickerDate))) {
+						this.showDensity(startDate, dateButtons, loadedSummaries);
+					}
+				}, AsyncSQLConnector.FX_THREAD);
+			}
+
+			//Read the neighbouring months in the background, so the month buttons stay instant
+			DaySummary.getMonthAsync(month.minusMonths(1));
+			DaySummary.getMonthAsync(month.plusMonths(1));
+		}
+
+		/**
+		 * Marks date buttons with a bar below the day number, as wide as the number of tasks and darker for more open tasks, green if all are completed.
+		 * @param startDate Date of the first button
+		 * @param dateButtons Buttons for 42 dates
+		 * @param summaries Summaries of the dates with tasks, null if they couldn't be read
+		 */
+		private void showDensity(LocalDate startDate, Button[] dateButtons, Map<LocalDate, DaySummary> summaries) {
+			if (summaries == null) {
+				return;
+			}
+			for (int i = 0; i < dateButtons.length; i++) {
+				DaySummary summary = summaries.get(startDate.plusDays(i));
+				if (summary == null) {
+					continue;
+				}
+				int openCount = summary.taskCount - summary.completedCount;
+				Rectangle densityBar = new Rectangle(Math.min(25, 3 + 2 * summary.taskCount), 3);
+				densityBar.setFill(openCount == 0 ? Color.MEDIUMSEAGREEN : Color.gray(Math.max(0.2, 0.8 - 0.1 * openCount)));
+				dateButtons[i].setGraphic(densityBar);
+				dateButtons[i].setContentDisplay(ContentDisplay.BOTTOM);
+				dateButtons[i].setGraphicTextGap(1);
+				dateButtons[i].setTooltip(new Tooltip(openCount + " open, " + summary.completedCount + " completed"));
+			}
 		}
 	}
 }
\ No newline at end of file
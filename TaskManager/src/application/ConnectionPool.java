@@ -0,0 +1,401 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a small pool of open connections to the SQLite database, so queries don't pay for opening and closing the database file.
+ * Connections are borrowed with acquire() and handed back by closing the returned PooledConnection.
+ * Idle connections are closed after the idle timeout, keeping at least one connection open.
+ * Each connection caches its PreparedStatements by SQL text, so repeated queries skip parsing and planning.
+ */
+public class ConnectionPool {
+
+	//Database file location
+	private final String url;
+
+	//Sets up each newly opened connection
+	private final ConnectionInitializer initializer;
+
+	//Maximum number of open connections and milliseconds an idle connection is kept open
+	private final int maxSize;
+	private final long idleTimeout;
+
+	//Idle connections, most recently used first
+	private final ArrayDeque<PooledConnection> idleConnections = new ArrayDeque<PooledConnection>();
+	private int openCount = 0;
+	private boolean shutDown = false;
+
+	//Closes idle connections past the idle timeout
+	private final ScheduledExecutorService idleReaper;
+
+	//Maximum number of cached PreparedStatements per connection
+	public static final int STATEMENT_CACHE_SIZE = 32;
+
+	//Statement cache metrics, counted over all connections
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+	private final AtomicLong statementEvictions = new AtomicLong();
+
+	//Metrics
+	private long acquireCount = 0;
+	private long createdCount = 0;
+	private long closedCount = 0;
+	private long totalWaitNanos = 0;
+	private long maxWaitNanos = 0;
+	private int inUseCount = 0;
+	private int peakInUseCount = 0;
+
+	/**
+	 * Creates a pool of connections to a database. Connections are opened when first needed.
+	 * @param url Database file location
+	 * @param maxSize Maximum number of connections open at the same time
+	 * @param idleTimeout Milliseconds an unused connection stays open before it is closed
+	 * @param initializer Sets up each newly opened connection, for example with PRAGMA statements
+	 */
+	public ConnectionPool(String url, int maxSize, long idleTimeout, ConnectionInitializer initializer) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Pool size must be at least 1");
+		}
+		this.url = url;
+		this.initializer = initializer;
+		this.maxSize = maxSize;
+		this.idleTimeout = idleTimeout;
+
+		this.idleReaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "SQLite connection reaper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(idleTimeout / 2, 1000);
+		this.idleReaper.scheduleWithFixedDelay(this::closeIdleConnections, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Borrows a connection from the pool, opening a new one if none are idle and the pool isn't full.
+	 * Waits for a connection to be returned if the pool is full.
+	 * @return PooledConnection that returns the connection to the pool when closed
+	 * @throws SQLException If the pool is shut down or a new connection can't be opened
+	 */
+	public PooledConnection acquire() throws SQLException {
+		long start = System.nanoTime();
+		boolean openNew = false;
+		PooledConnection pooled = null;
+
+		synchronized (this) {
+			while (!this.shutDown && this.idleConnections.isEmpty() && this.openCount >= this.maxSize) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while waiting for a database connection", e);
+				}
+			}
+			if (this.shutDown) {
+				throw new SQLException("Connection pool is shut down");
+			}
+
+			if (!this.idleConnections.isEmpty()) {
+				pooled = this.idleConnections.pollFirst();
+			} else {
+				//Reserve a slot, open the connection outside the lock
+				this.openCount++;
+				openNew = true;
+			}
+			this.recordAcquire(System.nanoTime() - start);
+		}
+
+		if (openNew) {
+			try {
+				Connection connection = DriverManager.getConnection(this.url);
+				try {
+					this.initializer.initialize(connection);
+				} catch (SQLException e) {
+					connection.close();
+					throw e;
+				}
+				pooled = new PooledConnection(this, connection);
+			} catch (SQLException e) {
+				synchronized (this) {
+					this.openCount--;
+					this.inUseCount--;
+					this.notifyAll();
+				}
+				throw e;
+			}
+			synchronized (this) {
+				this.createdCount++;
+			}
+		}
+
+		pooled.inUse = true;
+		return pooled;
+	}
+
+	/**
+	 * Returns a connection to the pool. Called when a PooledConnection is closed.
+	 * Broken connections, or connections returned after shutdown, are closed instead.
+	 * @param pooled PooledConnection to return
+	 */
+	void release(PooledConnection pooled) {
+		boolean keep;
+		try {
+			if (!pooled.connection.getAutoCommit()) {
+				pooled.connection.rollback();
+				pooled.connection.setAutoCommit(true);
+			}
+			keep = !pooled.connection.isClosed();
+		} catch (SQLException e) {
+			keep = false;
+		}
+
+		synchronized (this) {
+			this.inUseCount--;
+			keep = keep && !this.shutDown;
+			if (keep) {
+				pooled.lastUsed = System.currentTimeMillis();
+				this.idleConnections.addFirst(pooled);
+			} else {
+				this.openCount--;
+				this.closedCount++;
+			}
+			this.notifyAll();
+		}
+
+		if (!keep) {
+			pooled.closeConnection();
+		}
+	}
+
+	/**
+	 * Closes connections that have been idle for longer than the idle timeout. Always keeps one connection open.
+	 */
+	private void closeIdleConnections() {
+		ArrayDeque<PooledConnection> expired = new ArrayDeque<PooledConnection>();
+		long now = System.currentTimeMillis();
+
+		synchronized (this) {
+			//Least recently used connections are at the end of the deque
+			while (this.openCount > 1 && !this.idleConnections.isEmpty() && now - this.idleConnections.peekLast().lastUsed > this.idleTimeout) {
+				expired.add(this.idleConnections.pollLast());
+				this.openCount--;
+				this.closedCount++;
+			}
+		}
+
+		for (PooledConnection pooled : expired) {
+			pooled.closeConnection();
+		}
+	}
+
+	/**
+	 * Closes all idle connections and stops handing out connections. Connections still in use are closed when they are returned.
+	 */
+	public void shutdown() {
+		ArrayDeque<PooledConnection> remaining;
+
+		synchronized (this) {
+			this.shutDown = true;
+			remaining = new ArrayDeque<PooledConnection>(this.idleConnections);
+			this.openCount -= this.idleConnections.size();
+			this.closedCount += this.idleConnections.size();
+			this.idleConnections.clear();
+			this.notifyAll();
+		}
+
+		this.idleReaper.shutdownNow();
+		for (PooledConnection pooled : remaining) {
+			pooled.closeConnection();
+		}
+	}
+
+	public synchronized boolean isShutDown() {
+		return this.shutDown;
+	}
+
+	private void recordAcquire(long waitNanos) {
+		this.acquireCount++;
+		this.totalWaitNanos += waitNanos;
+		this.maxWaitNanos = Math.max(this.maxWaitNanos, waitNanos);
+		this.inUseCount++;
+		this.peakInUseCount = Math.max(this.peakInUseCount, this.inUseCount);
+	}
+
+	/**
+	 * Takes a snapshot of the pool metrics.
+	 * @return PoolStats with connection counts and wait times
+	 */
+	public synchronized PoolStats getStats() {
+		return new PoolStats(this.maxSize, this.openCount, this.inUseCount, this.peakInUseCount, this.idleConnections.size(),
+				this.acquireCount, this.createdCount, this.closedCount, this.totalWaitNanos, this.maxWaitNanos,
+				this.statementHits.get(), this.statementMisses.get(), this.statementEvictions.get());
+	}
+
+	/**
+	 * Sets up a newly opened connection before it is first handed out.
+	 */
+	public interface ConnectionInitializer {
+		void initialize(Connection connection) throws SQLException;
+	}
+
+	/**
+	 * A connection borrowed from a ConnectionPool. Closing it hands the connection back to the pool instead of closing it.
+	 */
+	public static class PooledConnection implements AutoCloseable {
+
+		private final ConnectionPool pool;
+		final Connection connection;
+		private long lastUsed;
+		private boolean inUse;
+
+		//Cached statements by SQL text, least recently used first
+		private final LinkedHashMap<String, PreparedStatement> statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+
+		private PooledConnection(ConnectionPool pool, Connection connection) {
+			this.pool = pool;
+			this.connection = connection;
+		}
+
+		public Connection getConnection() {
+			return this.connection;
+		}
+
+		/**
+		 * Get a PreparedStatement for an SQL string from the cache of this connection, preparing it if it isn't cached.
+		 * The statement stays open for reuse: don't close it, but do close its ResultSets. Parameters from earlier use are cleared.
+		 * @param sqlString SQL command string with ? for parameters
+		 * @return Cached PreparedStatement
+		 * @throws SQLException If the statement can't be prepared
+		 */
+		public PreparedStatement prepare(String sqlString) throws SQLException {
+			return this.prepare(sqlString, Statement.NO_GENERATED_KEYS);
+		}
+
+		/**
+		 * Get a PreparedStatement for an SQL string from the cache of this connection, preparing it if it isn't cached.
+		 * @param sqlString SQL command string with ? for parameters
+		 * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS to make generated keys available
+		 * @return Cached PreparedStatement
+		 * @throws SQLException If the statement can't be prepared
+		 */
+		public PreparedStatement prepare(String sqlString, int autoGeneratedKeys) throws SQLException {
+			String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "KEYS:" + sqlString : sqlString;
+			PreparedStatement statement = this.statementCache.get(key);
+
+			if (statement != null && !statement.isClosed()) {
+				this.pool.statementHits.incrementAndGet();
+				statement.clearParameters();
+				statement.clearBatch();
+				return statement;
+			}
+
+			this.pool.statementMisses.incrementAndGet();
+			statement = this.connection.prepareStatement(sqlString, autoGeneratedKeys);
+			this.statementCache.put(key, statement);
+
+			//Evict least recently used statement
+			if (this.statementCache.size() > ConnectionPool.STATEMENT_CACHE_SIZE) {
+				Iterator<Map.Entry<String, PreparedStatement>> iterator = this.statementCache.entrySet().iterator();
+				PreparedStatement evicted = iterator.next().getValue();
+				iterator.remove();
+				evicted.close();
+				this.pool.statementEvictions.incrementAndGet();
+			}
+			return statement;
+		}
+
+		/**
+		 * Returns the connection to the pool. Calling close more than once has no effect.
+		 */
+		@Override
+		public void close() {
+			if (this.inUse) {
+				this.inUse = false;
+				this.pool.release(this);
+			}
+		}
+
+		private void closeConnection() {
+			try {
+				for (PreparedStatement statement : this.statementCache.values()) {
+					statement.close();
+				}
+				this.statementCache.clear();
+				this.connection.close();
+			} catch (SQLException e) {
+				System.out.println(e);
+			}
+		}
+	}
+
+	/**
+	 * Snapshot of the metrics of a ConnectionPool.
+	 */
+	public static class PoolStats {
+
+		public final int maxSize;
+		public final int openConnections;
+		public final int inUse;
+		public final int peakInUse;
+		public final int idle;
+		public final long acquireCount;
+		public final long createdCount;
+		public final long closedCount;
+		public final long totalWaitNanos;
+		public final long maxWaitNanos;
+		public final long statementHits;
+		public final long statementMisses;
+		public final long statementEvictions;
+
+		PoolStats(int maxSize, int openConnections, int inUse, int peakInUse, int idle, long acquireCount, long createdCount, long closedCount, long totalWaitNanos, long maxWaitNanos,
+				long statementHits, long statementMisses, long statementEvictions) {
+			this.maxSize = maxSize;
+			this.openConnections = openConnections;
+			this.inUse = inUse;
+			this.peakInUse = peakInUse;
+			this.idle = idle;
+			this.acquireCount = acquireCount;
+			this.createdCount = createdCount;
+			this.closedCount = closedCount;
+			this.totalWaitNanos = totalWaitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+			this.statementHits = statementHits;
+			this.statementMisses = statementMisses;
+			this.statementEvictions = statementEvictions;
+		}
+
+		/**
+		 * @return Average time spent waiting for a connection in milliseconds
+		 */
+		public double getAverageWaitMillis() {
+			return this.acquireCount == 0 ? 0 : this.totalWaitNanos / 1e6 / this.acquireCount;
+		}
+
+		/**
+		 * @return Fraction of statement lookups served from the statement cache
+		 */
+		public double getStatementHitRatio() {
+			long lookups = this.statementHits + this.statementMisses;
+			return lookups == 0 ? 0 : (double)this.statementHits / lookups;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("open %d/%d, in use %d (peak %d), idle %d, acquired %d, opened %d, closed %d, wait avg %.3f ms max %.3f ms, statements hit %d miss %d evicted %d (%.1f%%)",
+					this.openConnections, this.maxSize, this.inUse, this.peakInUse, this.idle, this.acquireCount,
+					this.createdCount, this.closedCount, this.getAverageWaitMillis(), this.maxWaitNanos / 1e6,
+					this.statementHits, this.statementMisses, this.statementEvictions, this.getStatementHitRatio() * 100);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package application;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Summary of the MainTasks on a date: number of tasks, number of completed tasks and the names of the first few tasks.
+ * Summaries for a range of dates are read with one aggregate query, without loading the tasks and their SubTasks.
+ * Summaries of the six weeks shown for a month are cached per month, and invalidated when a task on one of the days is written.
+ */
+public class DaySummary {
+
+	//Number of task names kept per day
+	public static final int NAME_COUNT = 3;
+
+	//Separates task names in the aggregated names column, can't be typed in a task name
+	private static final String NAME_SEPARATOR = "\u001F";
+
+	//One row per date with tasks: task count, completed count and the first names in task list order
+	private static final String SUMMARY_QUERY =
+			"SELECT Date, COUNT(*) AS TaskCount, SUM(Completed) AS CompletedCount," +
+			"	group_concat(CASE WHEN RowNumber <= " + DaySummary.NAME_COUNT + " THEN Name END, char(31) ORDER BY RowNumber) AS Names" +
+			"	FROM (SELECT Date, Name, Completed, ROW_NUMBER() OVER (PARTITION BY Date ORDER BY ID) AS RowNumber FROM tasks WHERE Date BETWEEN ? AND ?)" +
+			"	GROUP BY Date";
+
+	//Number of months kept in the cache
+	public static final int MONTH_CACHE_SIZE = 24;
+
+	//Summaries of the six weeks shown for a month, least recently used first
+	private static final LinkedHashMap<YearMonth, CompletableFuture<Map<LocalDate, DaySummary>>> monthSummaries = new LinkedHashMap<YearMonth, CompletableFuture<Map<LocalDate, DaySummary>>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<YearMonth, CompletableFuture<Map<LocalDate, DaySummary>>> eldest) {
+			return this.size() > DaySummary.MONTH_CACHE_SIZE;
+		}
+	};
+
+	final LocalDate date;
+	final int taskCount;
+	final int completedCount;
+	final List<String> names;
+
+	public DaySummary(LocalDate date, int taskCount, int completedCount, List<String> names) {
+		this.date = date;
+		this.taskCount = taskCount;
+		this.completedCount = completedCount;
+		this.names = names;
+	}
+
+	/**
+	 * @param date Date without tasks
+	 * @return Summary of a day without tasks
+	 */
+	public static DaySummary empty(LocalDate date) {
+		return new DaySummary(date, 0, 0, Collections.<String>emptyList());
+	}
+
+	/**
+	 * Reads summaries for a range of dates from the SQLite database on a reader thread, after pending writes are finished.
+	 * @param startDate First date of the range
+	 * @param endDate Last date of the range
+	 * @return CompletableFuture completed with the summaries of the dates in the range that have tasks
+	 */
+	public static CompletableFuture<Map<LocalDate, DaySummary>> readAsync(LocalDate startDate, LocalDate endDate) {
+		//Write pending changes first so they are included in the results
+		UnitOfWork.flush();
+		return AsyncSQLConnector.read(DaySummary.SUMMARY_QUERY, new Object[] {startDate, endDate}, DaySummary::readSummaries);
+	}
+
+	/**
+	 * Gets summaries of the six weeks shown for a month, from the cache or with one query on a reader thread.
+	 * Call on the JavaFX application thread.
+	 * @param month Month to get summaries for
+	 * @return CompletableFuture completed with the summaries of the shown days that have tasks, already completed if the month is cached
+	 */
+	public static synchronized CompletableFuture<Map<LocalDate, DaySummary>> getMonthAsync(YearMonth month) {
+		CompletableFuture<Map<LocalDate, DaySummary>> summaries = DaySummary.monthSummaries.get(month);
+		if (summaries == null) {
+			LocalDate startDate = DaySummary.getMonthStart(month);
+			CompletableFuture<Map<LocalDate, DaySummary>> read = DaySummary.readAsync(startDate, startDate.plusDays(41));
+			DaySummary.monthSummaries.put(month, read);
+			//Don't keep failed reads
+			read.whenComplete((result, exception) -> {
+				if (result == null || exception != null) {
+					DaySummary.forget(month, read);
+				}
+			});
+			summaries = read;
+		}
+		return summaries;
+	}
+
+	/**
+	 * Removes cached months showing a date, after a task on the date was written.
+	 * @param date Date whose tasks changed
+	 */
+	public static synchronized void invalidate(LocalDate date) {
+		DaySummary.monthSummaries.keySet().removeIf(month -> {
+			LocalDate startDate = DaySummary.getMonthStart(month);
+			return !date.isBefore(startDate) && !date.isAfter(startDate.plusDays(41));
+		});
+	}
+
+	/**
+	 * @param month Month to show
+	 * @return First of six shown weeks, the monday on or before the first day of the month
+	 */
+	public static LocalDate getMonthStart(YearMonth month) {
+		return month.atDay(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+	}
+
+	private static synchronized void forget(YearMonth month, CompletableFuture<Map<LocalDate, DaySummary>> read) {
+		DaySummary.monthSummaries.remove(month, read);
+	}
+
+	/**
+	 * Reads summaries for a range of dates from the SQLite database on the calling thread.
+	 * @param startDate First date of the range
+	 * @param endDate Last date of the range
+	 * @return Summaries of the dates in the range that have tasks
+	 */
+	public static Map<LocalDate, DaySummary> read(LocalDate startDate, LocalDate endDate) {
+		HashMap<LocalDate, DaySummary> summaries = new HashMap<LocalDate, DaySummary>();
+		SQLConnector.read(DaySummary.SUMMARY_QUERY, new Object[] {startDate, endDate}, rs -> {
+			summaries.putAll(DaySummary.readSummaries(rs));
+		});
+		return summaries;
+	}
+
+	private static HashMap<LocalDate, DaySummary> readSummaries(ResultSet rs) {
+		HashMap<LocalDate, DaySummary> summaries = new HashMap<LocalDate, DaySummary>();
+		try {
+			while (rs.next()) {
+				LocalDate date = SQLConnector.getDate(rs, "Date");
+				String names = rs.getString("Names");
+				List<String> nameList = names == null ? Collections.<String>emptyList() : new ArrayList<String>(Arrays.asList(names.split(DaySummary.NAME_SEPARATOR)));
+				summaries.put(date, new DaySummary(date, rs.getInt("TaskCount"), rs.getInt("CompletedCount"), nameList));
+			}
+		} catch (SQLException e) {
+			System.out.println(e);
+		}
+		return summaries;
+	}
+
+	public LocalDate getDate() {
+		return this.date;
+	}
+
+	public int getTaskCount() {
+		return this.taskCount;
+	}
+
+	public int getCompletedCount() {
+		return this.completedCount;
+	}
+
+	public List<String> getNames() {
+		return this.names;
+	}
+
+	@Override
+	public String toString() {
+		return this.date + ": " + this.completedCount + "/" + this.taskCount + " " + this.names;
+	}
+}
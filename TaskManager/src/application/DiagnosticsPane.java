@@ -0,0 +1,86 @@
+package application;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+
+/**
+ * Extends VBox. Shows the Metrics timers and cache statistics, refreshed every second while the pane is in view.
+ * Timing can be switched off and the timers reset, for example before reproducing a slow week view, and the RenderOverlay of the CalendarPane shown.
+ */
+public class DiagnosticsPane extends VBox {
+
+	//Milliseconds between refreshes
+	public static final double REFRESH_INTERVAL = 1000;
+
+	private TextArea reportArea = new TextArea();
+
+	public DiagnosticsPane() {
+		this.setPadding(new Insets(3));
+		this.setSpacing(3);
+		this.setStyle("-fx-background-color: white;");
+
+		//Report, monospaced so the columns line up
+		this.reportArea.setEditable(false);
+		this.reportArea.setFont(Font.font("Monospaced", 11));
+		VBox.setVgrow(this.reportArea, Priority.ALWAYS);
+
+		//Switch timing on and off
+		CheckBox enabledCheckBox = new CheckBox("Timing");
+		enabledCheckBox.setSelected(Metrics.isEnabled());
+		enabledCheckBox.setOnAction(e -> {
+			Metrics.setEnabled(enabledCheckBox.isSelected());
+		});
+
+		//Start counting from zero
+		Button resetButton = new Button("Reset");
+		resetButton.setOnAction(e -> {
+			Metrics.reset();
+			this.refresh();
+		});
+
+		//Show rendering timings over the CalendarPane, also toggled with F3
+		CheckBox overlayCheckBox = new CheckBox("Render overlay (F3)");
+		RenderOverlay renderOverlay = Main.calendarPane.renderOverlay;
+		overlayCheckBox.setSelected(renderOverlay.isVisible());
+		overlayCheckBox.setOnAction(e -> {
+			renderOverlay.setShowing(overlayCheckBox.isSelected());
+		});
+		renderOverlay.visibleProperty().addListener((observable, oldValue, newValue) -> {
+			overlayCheckBox.setSelected(newValue);
+		});
+
+		HBox controlBox = new HBox(10);
+		controlBox.setAlignment(Pos.CENTER_LEFT);
+		controlBox.getChildren().addAll(enabledCheckBox, overlayCheckBox, resetButton);
+		this.getChildren().addAll(controlBox, this.reportArea);
+
+		//Refresh while shown
+		Timeline timeline = new Timeline(new KeyFrame(Duration.millis(DiagnosticsPane.REFRESH_INTERVAL), e -> {
+			if (this.getScene() != null) {
+				this.refresh();
+			}
+		}));
+		timeline.setCycleCount(Animation.INDEFINITE);
+		timeline.playFromStart();
+	}
+
+	/**
+	 * Shows the current timers and cache statistics.
+	 */
+	public void refresh() {
+		double scrollTop = this.reportArea.getScrollTop();
+		this.reportArea.setText(Metrics.getReport() + System.lineSeparator() + Metrics.getCacheStats());
+		this.reportArea.setScrollTop(scrollTop);
+	}
+}
@@ -0,0 +1,130 @@
+package application;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Makes the JFR event types of MetricsEvents with jdk.jfr.EventFactory, and begins and commits their events.
+ * Flight Recorder is only used through reflection, so the class compiles for Java 8 without it. MetricsEvents loads it only when the JVM has Flight Recorder.
+ */
+final class FlightRecorderEvents implements MetricsEvents.Recorder {
+
+	//Index of the event fields, in the order they are made in the constructor
+	private static final int OPERATION = 0;
+	private static final int FAILED = 1;
+
+	private final Constructor<?> annotationElement;
+	private final Constructor<?> valueDescriptor;
+	private final Method newEvent;
+	private final Method isTypeEnabled;
+	private final Method set;
+	private final Method begin;
+	private final Method commit;
+
+	//EventFactory and EventType per event type
+	private final Object sqlEvents;
+	private final Object taskLoadEvents;
+	private final Object calendarUpdateEvents;
+	private final Object paneEvents;
+	private final Object sqlType;
+	private final Object taskLoadType;
+	private final Object calendarUpdateType;
+	private final Object paneType;
+
+	FlightRecorderEvents() throws ReflectiveOperationException {
+		Class<?> eventClass = Class.forName("jdk.jfr.Event");
+		Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+		this.annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+		this.valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+		this.newEvent = factoryClass.getMethod("newEvent");
+		this.isTypeEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+		this.set = eventClass.getMethod("set", int.class, Object.class);
+		this.begin = eventClass.getMethod("begin");
+		this.commit = eventClass.getMethod("commit");
+
+		//Fields shared by the event types
+		List<Object> fields = Arrays.asList(
+				this.valueDescriptor.newInstance(String.class, "operation", this.annotations("Label", "Operation")),
+				this.valueDescriptor.newInstance(boolean.class, "failed", this.annotations("Label", "Failed")));
+
+		Method create = factoryClass.getMethod("create", List.class, List.class);
+		this.sqlEvents = create.invoke(null, this.eventAnnotations("application.SQL", "SQL Statement", "Database", "Statement run through SQLConnector"), fields);
+		this.taskLoadEvents = create.invoke(null, this.eventAnnotations("application.TaskLoad", "Task Load", "Model", "MainTasks and SubTasks read for PlanDates"), fields);
+		this.calendarUpdateEvents = create.invoke(null, this.eventAnnotations("application.CalendarUpdate", "Calendar Update", "UI", "CalendarPane showing a day, week or month"), fields);
+		this.paneEvents = create.invoke(null, this.eventAnnotations("application.PaneCreate", "Pane Creation", "UI", "Construction of a task pane or day box"), fields);
+
+		Method getEventType = factoryClass.getMethod("getEventType");
+		this.sqlType = getEventType.invoke(this.sqlEvents);
+		this.taskLoadType = getEventType.invoke(this.taskLoadEvents);
+		this.calendarUpdateType = getEventType.invoke(this.calendarUpdateEvents);
+		this.paneType = getEventType.invoke(this.paneEvents);
+	}
+
+	@Override
+	public Object begin(String name) {
+		Object events;
+		Object type;
+		if (name.startsWith("sql.")) {
+			events = this.sqlEvents;
+			type = this.sqlType;
+		} else if (name.startsWith("planDate.")) {
+			events = this.taskLoadEvents;
+			type = this.taskLoadType;
+		} else if (name.startsWith("calendar.")) {
+			events = this.calendarUpdateEvents;
+			type = this.calendarUpdateType;
+		} else {
+			events = this.paneEvents;
+			type = this.paneType;
+		}
+
+		try {
+			//Only create an event while its type is being recorded
+			if (!(Boolean)this.isTypeEnabled.invoke(type)) {
+				return null;
+			}
+			Object event = this.newEvent.invoke(events);
+			this.set.invoke(event, FlightRecorderEvents.OPERATION, name);
+			this.begin.invoke(event);
+			return event;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void commit(Object event, boolean failed) {
+		try {
+			this.set.invoke(event, FlightRecorderEvents.FAILED, failed);
+			this.commit.invoke(event);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * @return Annotations of an event type: name, label, category under TaskManager and description
+	 */
+	private List<Object> eventAnnotations(String name, String label, String category, String description) throws ReflectiveOperationException {
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.addAll(this.annotations("Name", name));
+		annotations.addAll(this.annotations("Label", label));
+		annotations.addAll(this.annotations("Category", new String[] {"TaskManager", category}));
+		annotations.addAll(this.annotations("Description", description));
+		return annotations;
+	}
+
+	/**
+	 * @param annotation Simple name of a jdk.jfr annotation
+	 * @param value Value of the annotation
+	 * @return List holding the AnnotationElement
+	 */
+	private List<Object> annotations(String annotation, Object value) throws ReflectiveOperationException {
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.add(this.annotationElement.newInstance(Class.forName("jdk.jfr." + annotation), value));
+		return annotations;
+	}
+}
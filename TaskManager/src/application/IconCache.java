@@ -0,0 +1,71 @@
+package application;
+
+import java.util.HashMap;
+
+import javafx.scene.image.Image;
+
+/**
+ * Application-wide cache of button icons. Each icon is decoded once per size and the Image is shared by all ImageViews showing it.
+ * Counts decodes and estimates the memory saved by sharing, assuming 4 bytes per decoded pixel.
+ */
+public final class IconCache {
+
+	//Decoded icons by file name and size
+	private static final HashMap<String, Image> icons = new HashMap<String, Image>();
+
+	//Metrics
+	private static long requestCount = 0;
+	private static long decodeCount = 0;
+	private static long bytesSaved = 0;
+
+	/**
+	 * Get an icon at its original size, as the ImageViews showing it scale it themselves.
+	 * @param name File name of the icon in the application package
+	 * @return Shared Image of the icon
+	 */
+	public static Image get(String name) {
+		return IconCache.get(name, 0);
+	}
+
+	/**
+	 * Get an icon scaled to a size, decoding it on first use.
+	 * @param name File name of the icon in the application package
+	 * @param size Width and height to scale the icon to when decoding, keeping its ratio, or 0 for its original size
+	 * @return Shared Image of the icon
+	 */
+	public static synchronized Image get(String name, double size) {
+		IconCache.requestCount++;
+		String key = name + "@" + size;
+		Image icon = IconCache.icons.get(key);
+		if (icon == null) {
+			icon = new Image(IconCache.class.getResourceAsStream(name), size, size, true, true);
+			IconCache.icons.put(key, icon);
+			IconCache.decodeCount++;
+		} else {
+			IconCache.bytesSaved += (long)icon.getWidth() * (long)icon.getHeight() * 4;
+		}
+		return icon;
+	}
+
+	/**
+	 * Remove all icons from the cache. Images in use stay valid.
+	 */
+	public static synchronized void clear() {
+		IconCache.icons.clear();
+	}
+
+	/**
+	 * @return Summary of requests, decodes and memory saved
+	 */
+	public static synchronized String getStats() {
+		return "icons " + IconCache.icons.size() + ", requests " + IconCache.requestCount + ", decoded " + IconCache.decodeCount + ", saved " + IconCache.bytesSaved / 1024 + " KiB";
+	}
+
+	public static synchronized long getDecodeCount() {
+		return IconCache.decodeCount;
+	}
+
+	public static synchronized long getBytesSaved() {
+		return IconCache.bytesSaved;
+	}
+}
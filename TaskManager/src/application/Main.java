@@ -3,7 +3,6 @@ package application;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
@@ -17,6 +16,8 @@ import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.layout.*;
 
 /**
@@ -27,14 +28,16 @@ public class Main extends Application {
 	//SQL database file location
 	static String url = "jdbc:sqlite:taskbase.db";
 	
-	//Viewmode for viewing the agenda per day or week, used as parameter in CalendarPane
+	//Viewmode for viewing the agenda per day, week or month, used as parameter in CalendarPane
 	public static enum ViewMode {
-		day, week
+		day, week, month
 	}
 	
 	//Root pane, menubar, and panes for different views
 	BorderPane root = new BorderPane();
 	static CalendarPane calendarPane;
+	static SearchPane searchPane;
+	static DiagnosticsPane diagnosticsPane;
 	static MainMenuBar mainMenuBar;
 
 	/**
@@ -44,34 +47,23 @@ public class Main extends Application {
 	@Override
 	public void start(Stage primaryStage) {
 
+		//Publish timings over JMX
+		Metrics.registerMBean();
+
 		//Set SQLite database url
 		SQLConnector.setUrl(Main.url);
 		
-		//Check database for tables
-		ArrayList<String> tableStrings = new ArrayList<String>();
-		
-		//Task table
-		tableStrings.add("CREATE TABLE IF NOT EXISTS tasks (" +
-				  "	ID INTEGER PRIMARY KEY," +
-				  "	Name VARCHAR(100) NOT NULL," +
-				  "	Date DATE NOT NULL," +
-				  "	Time TEXT," +
-				  "	Completed INTYINT(1) NOT NULL," +
-				  "	Expanded INTYINT(1) NOT NULL," +
-				  "	Editmode INTYINT(1) NOT NULL" +
-				  ");");
-		//Subtask table
-		tableStrings.add("CREATE TABLE IF NOT EXISTS subtasks (" +
-				  "	ID INTEGER PRIMARY KEY," +
-				  "	Name VARCHAR(100) NOT NULL," +
-				  "	MainTaskID INT NOT NULL," +
-				  "	Completed INTYINT(1) NOT NULL" +
-				  ");");
-
-		SQLConnector.checkTables(tableStrings);
+		//Create or upgrade database tables
+		SchemaMigrator.migrate();
+
+		//Load expanded and edit mode state of tasks and save changes periodically
+		ViewStateStore.load();
+		ViewStateStore.startAutoSave(ViewStateStore.DEFAULT_SAVE_INTERVAL);
 		
 		//Create panes and menubar
 		Main.calendarPane = new CalendarPane();
+		Main.searchPane = new SearchPane();
+		Main.diagnosticsPane = new DiagnosticsPane();
 		Main.mainMenuBar = new MainMenuBar();
 		
 		//Set menu at top
@@ -84,6 +76,9 @@ public class Main extends Application {
 		Scene scene = new Scene(root,400,700);
 		this.root.setStyle("-fx-border-color: grey; -fx-border-width: 1;");
 		scene.getStylesheets().add(getClass().getResource("/TaskPaneStyle.css").toExternalForm());
+
+		//F3 shows the rendering overlay
+		scene.getAccelerators().put(new KeyCodeCombination(KeyCode.F3), () -> Main.calendarPane.renderOverlay.toggle());
 		
 		//Set min size
 		primaryStage.setMinHeight(400);
@@ -94,6 +89,21 @@ public class Main extends Application {
 		primaryStage.show();
 	}
 
+	/**
+	 * Writes pending changes and closes the pooled database connections when the application exits.
+	 */
+	@Override
+	public void stop() {
+		UnitOfWork.flush();
+		ViewStateStore.stopAutoSave();
+
+		//Wait for inserts to return their IDs, view states of tasks without an ID aren't saved
+		AsyncSQLConnector.awaitWrites();
+		ViewStateStore.save();
+		AsyncSQLConnector.shutdown();
+		SQLConnector.shutdown();
+	}
+
 	/**
 	 * Launches application.
 	 * @param args Command line arguments.
@@ -108,6 +118,7 @@ public class Main extends Application {
 	class MainMenuBar extends HBox {
 		
 		HBox buttonBox;
+		Button agendaButton;
 		Label currentDateLabel;
 		Label currentTimeLabel;
 
@@ -140,26 +151,43 @@ public class Main extends Application {
 			
 			//Buttons
 			int buttonWidth = 54;
-			Button agendaButton = new Button("Agenda");
-			agendaButton.setMinWidth(buttonWidth);
-			agendaButton.setMaxWidth(Double.MAX_VALUE);
-			HBox.setHgrow(agendaButton, Priority.ALWAYS);
-			agendaButton.setPadding(new Insets(4, 2, 4, 2));
-			agendaButton.setOnAction(e -> {
+			this.agendaButton = new Button("Agenda");
+			this.agendaButton.setMinWidth(buttonWidth);
+			this.agendaButton.setMaxWidth(Double.MAX_VALUE);
+			HBox.setHgrow(this.agendaButton, Priority.ALWAYS);
+			this.agendaButton.setPadding(new Insets(4, 2, 4, 2));
+			this.agendaButton.setOnAction(e -> {
 				menuBarButtonEvent((Button)e.getSource(), calendarPane);
 			});
+			Button searchButton = new Button("Search");
+			searchButton.setMinWidth(buttonWidth);
+			searchButton.setMaxWidth(Double.MAX_VALUE);
+			HBox.setHgrow(searchButton, Priority.ALWAYS);
+			searchButton.setPadding(new Insets(4, 2, 4, 2));
+			searchButton.setOnAction(e -> {
+				menuBarButtonEvent((Button)e.getSource(), searchPane);
+			});
+			Button diagnosticsButton = new Button("Diagnostics");
+			diagnosticsButton.setMinWidth(buttonWidth);
+			diagnosticsButton.setMaxWidth(Double.MAX_VALUE);
+			HBox.setHgrow(diagnosticsButton, Priority.ALWAYS);
+			diagnosticsButton.setPadding(new Insets(4, 2, 4, 2));
+			diagnosticsButton.setOnAction(e -> {
+				menuBarButtonEvent((Button)e.getSource(), diagnosticsPane);
+				diagnosticsPane.refresh();
+			});
 			//HBox for buttons
 			this.buttonBox = new HBox();
 			this.buttonBox.setAlignment(Pos.TOP_LEFT);
 			this.buttonBox.setMaxWidth(Double.MAX_VALUE);
 			HBox.setHgrow(this.buttonBox, Priority.ALWAYS);
-			this.buttonBox.getChildren().addAll(agendaButton);
+			this.buttonBox.getChildren().addAll(this.agendaButton, searchButton, diagnosticsButton);
 			
 			//Add boxes to bar
 			this.getChildren().addAll(this.buttonBox, dateBox);
 			
 			//Set agendaButton style as pressed and calendarPane as default view
-			agendaButton.fire();
+			this.agendaButton.fire();
 		}
 		
 		/**
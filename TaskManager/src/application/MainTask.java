@@ -2,11 +2,20 @@ package application;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import application.TaskListener.Property;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 
 /**
  * Extends Task. Class describing a main task in the agenda. Holds a list of subTasks.
- * Contains methods for updating and deleting its entry in the SQLite database.
- * Holds a reference to a MainTaskPane for display of its variables.
+ * Contains methods for updating and deleting its entry in the SQLite database. Expanded and edit mode are kept in the ViewStateStore.
+ * Displayed by a MainTaskPane while it's in view.
  */
 public class MainTask extends Task implements Comparable<MainTask> {
 
@@ -15,7 +24,8 @@ public class MainTask extends Task implements Comparable<MainTask> {
 	private Boolean expanded;
 	private Boolean editMode;
 
-	private ArrayList<SubTask> subTaskList = new ArrayList<SubTask>();
+	//Observable so a MainTaskPane can mirror changes to it one SubTask at a time
+	private final ObservableList<SubTask> subTaskList = FXCollections.observableArrayList();
 
 	/*
 	 * Constructor for new MainTask on a PlanDate.
@@ -29,7 +39,6 @@ public class MainTask extends Task implements Comparable<MainTask> {
 		this.completed = false;
 		this.expanded = false;
 		this.editMode = false;
-		this.taskPane = new MainTaskPane(this);
 	}
 
 	/*
@@ -39,8 +48,8 @@ public class MainTask extends Task implements Comparable<MainTask> {
 	 * @param planDate Date MainTask is planned on
 	 * @param time Time MainTask is planned on, can be null
 	 * @param completed MainTask completion
-	 * @param expanded MainTaskPane expanded
-	 * @param editMode MainTaskPane editMode
+	 * @param expanded MainTaskPane expanded, from the ViewStateStore
+	 * @param editMode MainTaskPane editMode, from the ViewStateStore
 	 */
 	public MainTask(int iD, String name, PlanDate planDate, LocalTime time, Boolean completed, Boolean expanded, Boolean editMode) {
 		this.iD = iD;
@@ -50,51 +59,110 @@ public class MainTask extends Task implements Comparable<MainTask> {
 		this.completed = completed;
 		this.expanded = expanded;
 		this.editMode = editMode;
-		this.taskPane = new MainTaskPane(this);
 	}
 
 	/**
-	 * Update SQLite database entry of this MainTask with new values
+	 * Set the ID generated by the insert of this MainTask, and record its view state now that it can be saved.
+	 * @param iD Generated ID
+	 */
+	@Override
+	public void setID(int iD) {
+		super.setID(iD);
+		ViewStateStore.inserted(this);
+	}
+
+	/**
+	 * Update SQLite database entry of this MainTask with new values.
+	 * New MainTasks are inserted right away on the writer thread, changes to existing MainTasks are written at the next UnitOfWork flush.
 	 */
 	public void updateSQL() {
-		
-		//Get data to insert
-		String[] data = new String[6];
-		data[0] = this.getName();
-		data[1] = this.getPlanDate().toString();
-		data[2] = null;
-		if (this.getTime() != null) {
-			data[2] = this.getTime().toString().substring(0,5);
-		}
-		data[3] = this.isCompleted().toString();
-		data[4] = this.isExpanded().toString();
-		data[5] = this.isEditMode().toString();
+		DaySummary.invalidate(this.planDate.date);
 
 		//If new task, add to database
 		if (this.getID() == 0) {
-			String insertString = "INSERT INTO tasks (Name, Date, Time, Completed, Expanded, Editmode) VALUES (?,?,?,?,?,?)";
-			this.setID(SQLConnector.insert(insertString, data));
+			String insertString = "INSERT INTO tasks (Name, Date, Time, Completed) VALUES (?,?,?,?)";
+			Object[] data = this.getData();
+			this.insertSQL(insertString, () -> data);
 
-		//If already exists, update records
+		//If already exists, update records at next flush
 		} else {
-			String updateString = "UPDATE tasks SET Name = ?, Date = ?, Time = ?, Completed = ?, Expanded = ?, Editmode = ? WHERE ID = " + this.getID();
-			SQLConnector.update(updateString, data);
+			UnitOfWork.register(this);
 		}
 	}
+
+	@Override
+	String getUpdateString() {
+		return "UPDATE tasks SET Name = ?, Date = ?, Time = ?, Completed = ? WHERE ID = ?";
+	}
+
+	@Override
+	Object[] getUpdateData() {
+		Object[] data = Arrays.copyOf(this.getData(), 5);
+		data[4] = this.getID();
+		return data;
+	}
+
+	/**
+	 * @return Column values of this MainTask in the order Name, Date, Time, Completed
+	 */
+	private Object[] getData() {
+		return new Object[] {this.getName(), this.getPlanDate().date, this.getTime(), this.isCompleted()};
+	}
 	
 	/**
-	 * Delete SQLite database entry of this MainTask and all its SubTasks
+	 * Delete SQLite database entry of this MainTask in a single statement.
+	 * Its SubTasks and view state are deleted along with it by ON DELETE CASCADE.
 	 */
 	public void deleteSQL() {
-		SQLConnector.delete("DELETE FROM tasks WHERE ID = '" + this.getID() + "'");
-		SQLConnector.delete("DELETE FROM subtasks WHERE MainTaskID = '" + this.getID() + "'");
+		ArrayList<MainTask> tasks = new ArrayList<MainTask>();
+		tasks.add(this);
+		MainTask.deleteSQL(tasks);
+	}
+
+	/**
+	 * Delete SQLite database entries of many MainTasks and all their SubTasks in one transaction.
+	 * @param tasks MainTasks to delete
+	 * @return CompletableFuture completed when the transaction is committed
+	 */
+	public static CompletableFuture<Void> deleteSQL(Collection<MainTask> tasks) {
+		ArrayList<MainTask> deletedTasks = new ArrayList<MainTask>(tasks);
+		for (MainTask task : deletedTasks) {
+			DaySummary.invalidate(task.getPlanDate().date);
+			UnitOfWork.discard(task);
+			ViewStateStore.remove(task);
+			for (SubTask subTask : task.subTaskList) {
+				UnitOfWork.discard(subTask);
+			}
+		}
+
+		//IDs are read on the writer thread, after pending inserts have finished
+		return AsyncSQLConnector.submitWrite(() -> {
+			ArrayList<Object[]> data = new ArrayList<Object[]>();
+			for (MainTask task : deletedTasks) {
+				data.add(new Object[] {task.getID()});
+			}
+			LinkedHashMap<String, List<Object[]>> batches = new LinkedHashMap<String, List<Object[]>>();
+			batches.put("DELETE FROM tasks WHERE ID = ?", data);
+			SQLConnector.updateBatch(batches);
+			return null;
+		});
 	}
 	
 	public PlanDate getPlanDate() {
 		return planDate;
 	}
 
+	/**
+	 * Move this MainTask to another date, updating the task lists of both PlanDates in memory.
+	 * @param planDate PlanDate to move to
+	 */
 	public void setPlanDate(PlanDate planDate) {
+		if (planDate == this.planDate) {
+			return;
+		}
+		DaySummary.invalidate(this.planDate.date);
+		this.planDate.removeTask(this);
+		planDate.addTask(this);
 		this.planDate = planDate;
 		this.updateSQL();
 	}
@@ -106,7 +174,7 @@ public class MainTask extends Task implements Comparable<MainTask> {
 	public void setTime(LocalTime time) {
 		this.time = time;
 		this.updateSQL();
-		((MainTaskPane)this.taskPane).setTime(time);
+		this.fireChanged(Property.TIME);
 	}
 	
 	public Boolean isExpanded() {
@@ -115,8 +183,8 @@ public class MainTask extends Task implements Comparable<MainTask> {
 	
 	public void setExpanded(Boolean expanded) {
 		this.expanded = expanded;
-		this.updateSQL();
-		((MainTaskPane)this.taskPane).setExpanded(expanded);
+		ViewStateStore.put(this);
+		this.fireChanged(Property.EXPANDED);
 	}
 	
 	public Boolean isEditMode() {
@@ -125,27 +193,28 @@ public class MainTask extends Task implements Comparable<MainTask> {
 
 	public void setEditMode(Boolean editMode) {
 		this.editMode = editMode;
-		this.updateSQL();
-		((MainTaskPane)this.taskPane).setEditMode(editMode);
+		ViewStateStore.put(this);
+		this.fireChanged(Property.EDIT_MODE);
 	}
 	
-	public ArrayList<SubTask> getSubTaskList() {
+	public ObservableList<SubTask> getSubTaskList() {
 		return this.subTaskList;
 	}
 
-	public void setSubTaskList(ArrayList<SubTask> subTaskList) {
-		this.subTaskList = subTaskList;
-		((MainTaskPane)this.taskPane).addSubTaskPanes();
+	/**
+	 * Replace all SubTasks at once, as a single change to the list.
+	 * @param subTaskList SubTasks of this MainTask
+	 */
+	public void setSubTaskList(List<SubTask> subTaskList) {
+		this.subTaskList.setAll(subTaskList);
 	}
 
 	public void addToSubTaskList(SubTask subTask) {
 		this.subTaskList.add(subTask);
-		((MainTaskPane)this.taskPane).addSubTaskPanes();
 	}
 	
 	public void removeFromSubTaskList(SubTask subTask) {
 		this.subTaskList.remove(subTask);
-		((MainTaskPane)this.taskPane).addSubTaskPanes();
 	}
 	
 	@Override
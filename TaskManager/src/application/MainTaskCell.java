@@ -0,0 +1,57 @@
+package application;
+
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+
+/**
+ * Extends ListCell. Shows a MainTask in the task list of a day with a MainTaskPane.
+ * The ListView only creates cells for the visible rows; when a cell is reused for another MainTask its MainTaskPane is pointed at that task.
+ * An empty cell releases its MainTaskPane, so the pane stops following a task it no longer shows.
+ */
+public class MainTaskCell extends ListCell<MainTask> {
+
+	//Created for the first MainTask shown in this cell
+	private MainTaskPane taskPane;
+	//MainTask the taskPane follows, null while the cell is empty
+	private MainTask shownTask;
+
+	public MainTaskCell() {
+		this.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+		//Let the cell width follow the ListView instead of the MainTaskPane
+		this.setPrefWidth(0);
+	}
+
+	@Override
+	protected void updateItem(MainTask task, boolean empty) {
+		super.updateItem(task, empty);
+
+		if (empty || task == null) {
+			this.release();
+			return;
+		}
+
+		if (this.taskPane == null) {
+			Metrics.Sample sample = Metrics.start("pane.mainTask");
+			this.taskPane = new MainTaskPane(task);
+			this.taskPane.prefWidthProperty().bind(this.widthProperty());
+			sample.stop();
+		} else if (this.shownTask != task) {
+			Metrics.Sample sample = Metrics.start("pane.rebind");
+			this.taskPane.setTask(task);
+			sample.stop();
+		}
+		this.shownTask = task;
+		this.setGraphic(this.taskPane);
+	}
+
+	/**
+	 * Releases the MainTaskPane, when the cell is emptied or its ListView is no longer shown.
+	 */
+	public void release() {
+		if (this.shownTask != null) {
+			this.taskPane.release();
+			this.shownTask = null;
+		}
+		this.setGraphic(null);
+	}
+}
@@ -3,8 +3,13 @@ package application;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.ContentDisplay;
 import javafx.scene.control.Label;
@@ -32,6 +37,12 @@ public class MainTaskPane extends TaskPane {
 	private Button editButton = new Button();
 	private Label dateLabel = new Label();
 
+	//Mirrors changes to the subtask list of the shown MainTask
+	private final ListChangeListener<SubTask> subTaskListener = change -> this.updateSubTaskPanes(change);
+
+	//Unconfirmed edits of MainTasks in edit mode whose pane was released or reused, restored when the task is shown again
+	private static final WeakHashMap<MainTask, EditDraft> drafts = new WeakHashMap<MainTask, EditDraft>();
+
 	/**
 	 * Creates MainTaskPane to display information on a MainTask.
 	 * @param task MainTask to display
@@ -85,7 +96,7 @@ public class MainTaskPane extends TaskPane {
 		this.editButton.setStyle("-fx-border-color: grey; -fx-border-width: 0 0 0 1;");
 		this.editButton.setMinSize(34, 33);
 		this.editButton.setMaxSize(34, 33);
-		Image editImage = new Image(getClass().getResourceAsStream("ButtonEdit.png"));
+		Image editImage = IconCache.get("ButtonEdit.png");
 		ImageView editImageView = new ImageView(editImage);
 		editImageView.fitHeightProperty().bind(this.editButton.heightProperty());
 		editImageView.fitWidthProperty().bind(this.editButton.widthProperty());
@@ -95,68 +106,63 @@ public class MainTaskPane extends TaskPane {
 			((MainTask)this.task).setEditMode(true);
 		});
 		
-		//Delete button graphic is different from subtasks
-		Image cancelImage = new Image(getClass().getResourceAsStream("ButtonDelete.png"));
-		ImageView cancelImageView = new ImageView(cancelImage);
-		cancelImageView.fitHeightProperty().bind(this.deleteButton.heightProperty());
-		cancelImageView.fitWidthProperty().bind(this.deleteButton.widthProperty());
-		this.deleteButton.setGraphic(cancelImageView);
-		
 		//Add button adds new subtask
 		Button addButton = new Button();
 		addButton.setStyle("-fx-border-color: grey; -fx-border-width: 0 1 0 0;");
 		addButton.setMinSize(34, 33);
 		addButton.setMaxSize(34, 33);
-		Image addImage = new Image(getClass().getResourceAsStream("ButtonPlus.png"));
+		Image addImage = IconCache.get("ButtonPlus.png");
 		ImageView addImageView = new ImageView(addImage);
 		addImageView.fitHeightProperty().bind(addButton.heightProperty());
 		addImageView.fitWidthProperty().bind(addButton.widthProperty());
 		addButton.setGraphic(addImageView);
 		addButton.setOnAction(e -> {
+			//Pane of the new subtask is added in edit mode, like the MainTask
 			SubTask newTask = new SubTask((MainTask)this.task);
 			((MainTask)this.task).addToSubTaskList(newTask);
-			newTask.taskPane.setEditMode(true);
 		});
 		
 		//Confirm button
 		Button confirmButton = new Button();
 		confirmButton.setMinSize(34, 33);
 		confirmButton.setMaxSize(34, 33);
-		Image confirmImage = new Image(getClass().getResourceAsStream("ButtonConfirm.png"));
+		Image confirmImage = IconCache.get("ButtonConfirm.png");
 		ImageView confirmImageView = new ImageView(confirmImage);
 		confirmImageView.fitHeightProperty().bind(confirmButton.heightProperty());
 		confirmImageView.fitWidthProperty().bind(confirmButton.widthProperty());
 		confirmButton.setGraphic(confirmImageView);
 		confirmButton.setStyle("-fx-border-color: grey; -fx-border-width: 0 0 0 1;");
 		confirmButton.setOnAction(e -> {
-			((MainTask)this.task).setEditMode(false);
+			//Moving the task can point this pane at another task, so keep a reference
+			MainTask mainTask = (MainTask)this.task;
+			mainTask.setEditMode(false);
 			
 			//Set task variables
-			this.task.setName(this.taskNameField.getText());
+			mainTask.setName(this.taskNameField.getText());
 			LocalTime time = null;
 			try {
 				time = LocalTime.parse(this.taskTimeField.getText(), DateTimeFormatter.ofPattern("HHmm"));
 			} catch (Exception ex) {
 				
 			} finally {
-				((MainTask)this.task).setTime(time);
+				mainTask.setTime(time);
 			}
 			
-			//Move task
-			((MainTask)this.task).setPlanDate(new PlanDate(taskDate));
-			
 			//Set subtask variables
-			for(SubTask subTask : ((MainTask)this.task).getSubTaskList()) {
-				subTask.setName(subTask.taskPane.taskNameField.getText());
+			for (Node subTaskPane : this.subTaskBox.getChildren()) {
+				((TaskPane)subTaskPane).task.setName(((TaskPane)subTaskPane).taskNameField.getText());
 			}
 			
 			//Expand task if there are any subtasks
-			if (((MainTask)this.task).getSubTaskList().size() > 0) {
-				((MainTask)this.task).setExpanded(true);
+			if (mainTask.getSubTaskList().size() > 0) {
+				mainTask.setExpanded(true);
 			}
 			
-			//Updte UI
-			Main.calendarPane.update(Main.calendarPane.currentViewMode);
+			//Move task, the task lists of both days update their ListViews
+			mainTask.setPlanDate(PlanDate.of(taskDate));
+			
+			//Write changes in one transaction
+			UnitOfWork.flush();
 		});
 		
 		//Date label
@@ -164,14 +170,13 @@ public class MainTaskPane extends TaskPane {
 		this.dateLabel.setMaxWidth(Double.MAX_VALUE);
 		HBox.setHgrow(dateLabel, Priority.ALWAYS);
 		this.dateLabel.setAlignment(Pos.BASELINE_CENTER);
-		this.setNewPlanDate(((MainTask)this.task).getPlanDate().date);
 		
 		//Previous date button
 		Button previousDateButton = new Button();
 		previousDateButton.setStyle("-fx-border-color: grey; -fx-border-width: 0 1 0 0;");
 		previousDateButton.setMinSize(34, 33);
 		previousDateButton.setMaxSize(34, 33);
-		Image previousImage = new Image(getClass().getResourceAsStream("ButtonPrevious.png"));
+		Image previousImage = IconCache.get("ButtonPrevious.png");
 		ImageView previousImageView = new ImageView(previousImage);
 		previousImageView.fitHeightProperty().bind(previousDateButton.heightProperty());
 		previousImageView.fitWidthProperty().bind(previousDateButton.widthProperty());
@@ -185,7 +190,7 @@ public class MainTaskPane extends TaskPane {
 		nextDateButton.setStyle("-fx-border-color: grey; -fx-border-width: 0 0 0 1;");
 		nextDateButton.setMinSize(34, 33);
 		nextDateButton.setMaxSize(34, 33);
-		Image nextImage = new Image(getClass().getResourceAsStream("ButtonNext.png"));
+		Image nextImage = IconCache.get("ButtonNext.png");
 		ImageView nextImageView = new ImageView(nextImage);
 		nextImageView.fitHeightProperty().bind(nextDateButton.heightProperty());
 		nextImageView.fitWidthProperty().bind(nextDateButton.widthProperty());
@@ -203,13 +208,75 @@ public class MainTaskPane extends TaskPane {
 		this.buttonBox.setVisible(false);
 		this.buttonBox.setManaged(false);
 		
-		//Set time, completed, expanded, editmode
-		this.setTime(task.getTime());
-		this.setCompleted(task.isCompleted());
-		this.setExpanded(task.isExpanded());
-		this.setEditMode(task.isEditMode());
+		//Set name, time, completed, date, expanded, editmode
+		this.setTask(task);
+	}
+
+	/**
+	 * Shows another MainTask in this MainTaskPane, so the pane can be reused by a MainTaskCell.
+	 * @param task MainTask to show
+	 */
+	@Override
+	public void setTask(Task task) {
+		super.setTask(task);
+		MainTask mainTask = (MainTask)task;
+
+		//Mirror changes to the subtask list
+		mainTask.getSubTaskList().addListener(this.subTaskListener);
+
+		this.setTime(mainTask.getTime());
+		this.setNewPlanDate(mainTask.getPlanDate().date);
+		this.setExpanded(mainTask.isExpanded());
+		this.setSubTaskPanes();
+		this.setEditMode(mainTask.isEditMode());
+
+		//Restore edits made before the task was last shown
+		EditDraft draft = MainTaskPane.drafts.remove(mainTask);
+		if (draft != null && mainTask.isEditMode()) {
+			draft.restore(this);
+		}
+	}
+
+	/**
+	 * Stops following changes to the MainTask and its SubTasks. Unconfirmed edits are kept for the next pane showing the MainTask.
+	 */
+	@Override
+	public void release() {
+		if (this.editMode) {
+			MainTaskPane.drafts.put((MainTask)this.task, new EditDraft(this));
+		}
+		super.release();
+		((MainTask)this.task).getSubTaskList().removeListener(this.subTaskListener);
+		for (Node subTaskPane : this.subTaskBox.getChildren()) {
+			((TaskPane)subTaskPane).release();
+		}
+	}
+
+	@Override
+	public void taskChanged(Task task, Property property) {
+		MainTask mainTask = (MainTask)task;
+		switch (property) {
+		case TIME:
+			this.setTime(mainTask.getTime());
+			break;
+		case EXPANDED:
+			this.setExpanded(mainTask.isExpanded());
+			break;
+		case EDIT_MODE:
+			this.setEditMode(mainTask.isEditMode());
+			break;
+		default:
+			super.taskChanged(task, property);
+			break;
+		}
 	}
 	
+	//Delete button graphic is different from subtasks
+	@Override
+	protected String getDeleteIconName() {
+		return "ButtonDelete.png";
+	}
+
 	/**
 	 * Sets time label and field to display time belonging to a MainTask.
 	 * Sets label and field to invisible if time is null.
@@ -219,6 +286,9 @@ public class MainTaskPane extends TaskPane {
 		if (time != null) {
 			this.taskTimeField.setText(time.format(DateTimeFormatter.ofPattern("HHmm")));
 			this.taskTimeLabel.setText(time.format(DateTimeFormatter.ofPattern("HH:mm")));
+			//Label can be hidden from showing a task without time
+			this.taskTimeLabel.setVisible(!this.editMode);
+			this.taskTimeLabel.setManaged(!this.editMode);
 		} else {
 			this.taskTimeField.setText("");
 			this.taskTimeLabel.setText("");
@@ -241,18 +311,69 @@ public class MainTaskPane extends TaskPane {
 	}
 	
 	/**
-	 * Adds the TaskPanes of SubTasks belonging to the MainTask to the MainTaskPane.
+	 * Shows all SubTasks belonging to the MainTask in subTaskBox, in one change to subTaskBox.
+	 * TaskPanes already in subTaskBox are reused for the SubTasks, and only missing ones are created.
 	 */
-	public void addSubTaskPanes() {
-		this.subTaskBox.getChildren().clear();
-		
-		//Add subtaskpanes, set editmode
-		for (SubTask subTask : ((MainTask)this.task).getSubTaskList()) {
-			this.subTaskBox.getChildren().add(subTask.taskPane);
-			subTask.taskPane.setEditMode(((MainTask)this.task).isEditMode());
+	public void setSubTaskPanes() {
+		List<SubTask> subTaskList = ((MainTask)this.task).getSubTaskList();
+		List<Node> currentPanes = this.subTaskBox.getChildren();
+		ArrayList<TaskPane> subTaskPanes = new ArrayList<TaskPane>(subTaskList.size());
+		for (int i = 0; i < subTaskList.size(); i++) {
+			if (i < currentPanes.size()) {
+				TaskPane subTaskPane = (TaskPane)currentPanes.get(i);
+				subTaskPane.setTask(subTaskList.get(i));
+				subTaskPane.setEditMode(((MainTask)this.task).isEditMode());
+				subTaskPanes.add(subTaskPane);
+			} else {
+				subTaskPanes.addAll(this.createSubTaskPanes(subTaskList.subList(i, i + 1)));
+			}
+		}
+		for (int i = subTaskList.size(); i < currentPanes.size(); i++) {
+			((TaskPane)currentPanes.get(i)).release();
+		}
+		this.subTaskBox.getChildren().setAll(subTaskPanes);
+	}
+
+	/**
+	 * Applies a change of the subtask list to subTaskBox, whose children are kept in the same order as the list.
+	 * Only panes of added and removed SubTasks are changed.
+	 * @param change Change to the subtask list of the MainTask
+	 */
+	private void updateSubTaskPanes(ListChangeListener.Change<? extends SubTask> change) {
+		List<Node> subTaskPanes = this.subTaskBox.getChildren();
+		while (change.next()) {
+			if (change.wasPermutated()) {
+				this.setSubTaskPanes();
+				continue;
+			}
+			if (change.wasRemoved()) {
+				List<Node> removedPanes = subTaskPanes.subList(change.getFrom(), change.getFrom() + change.getRemovedSize());
+				for (Node removedPane : removedPanes) {
+					((TaskPane)removedPane).release();
+				}
+				removedPanes.clear();
+			}
+			if (change.wasAdded()) {
+				subTaskPanes.addAll(change.getFrom(), this.createSubTaskPanes(change.getAddedSubList()));
+			}
 		}
 	}
 
+	/**
+	 * @param subTasks SubTasks to create TaskPanes for
+	 * @return New TaskPanes of the SubTasks, with edit mode matching the MainTask
+	 */
+	private List<TaskPane> createSubTaskPanes(List<? extends SubTask> subTasks) {
+		ArrayList<TaskPane> subTaskPanes = new ArrayList<TaskPane>(subTasks.size());
+		for (SubTask subTask : subTasks) {
+			Metrics.Sample sample = Metrics.start("pane.subTask");
+			TaskPane subTaskPane = new TaskPane(subTask);
+			subTaskPane.setEditMode(((MainTask)this.task).isEditMode());
+			subTaskPanes.add(subTaskPane);
+			sample.stop();
+		}
+		return subTaskPanes;
+	}
 	
 	/**
 	 * Sets MainTaskPane and linked SubTaskPanes editMode. Hides labels and shows fields to enable editing of name and time.
@@ -273,8 +394,8 @@ public class MainTaskPane extends TaskPane {
 		this.buttonBox.setManaged(editMode);
 
 		//Set subtaskpanes to editmode
-		for (SubTask subTask : ((MainTask)this.task).getSubTaskList()) {
-			subTask.taskPane.setEditMode(editMode);
+		for (Node subTaskPane : this.subTaskBox.getChildren()) {
+			((TaskPane)subTaskPane).setEditMode(editMode);
 		}
 	}
 	
@@ -292,4 +413,41 @@ public class MainTaskPane extends TaskPane {
 		this.taskDate = date;
 		this.dateLabel.setText(taskDate.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")));
 	}
+
+	/**
+	 * Text in the fields and date picked in a MainTaskPane in edit mode, not yet confirmed.
+	 * SubTasks are weakly held, so a draft doesn't keep its MainTask in the drafts map alive.
+	 */
+	private static class EditDraft {
+
+		final String name;
+		final String time;
+		final LocalDate date;
+		final WeakHashMap<SubTask, String> subTaskNames = new WeakHashMap<SubTask, String>();
+
+		EditDraft(MainTaskPane pane) {
+			this.name = pane.taskNameField.getText();
+			this.time = pane.taskTimeField.getText();
+			this.date = pane.taskDate;
+			for (Node subTaskPane : pane.subTaskBox.getChildren()) {
+				this.subTaskNames.put((SubTask)((TaskPane)subTaskPane).task, ((TaskPane)subTaskPane).taskNameField.getText());
+			}
+		}
+
+		/**
+		 * Puts the edits back in a MainTaskPane showing the same MainTask.
+		 * @param pane MainTaskPane in edit mode
+		 */
+		void restore(MainTaskPane pane) {
+			pane.taskNameField.setText(this.name);
+			pane.taskTimeField.setText(this.time);
+			pane.setNewPlanDate(this.date);
+			for (Node subTaskPane : pane.subTaskBox.getChildren()) {
+				String subTaskName = this.subTaskNames.get(((TaskPane)subTaskPane).task);
+				if (subTaskName != null) {
+					((TaskPane)subTaskPane).taskNameField.setText(subTaskName);
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,353 @@
+package application;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Application-wide timings of database statements, task loading, view updates and pane construction.
+ * Each operation has a Timer counting calls and failures, with a latency histogram of power-of-two microsecond buckets.
+ * Operations are also recorded as JFR events when the JVM has Flight Recorder, see MetricsEvents, and the metrics are published over JMX.
+ *
+ * Timing an operation:
+ * Metrics.Sample sample = Metrics.start("sql.read");
+ * ... sample.stop(); or sample.fail();
+ */
+public final class Metrics {
+
+	//Number of histogram buckets, the last one counts everything from 2^(BUCKET_COUNT - 2) microseconds, about 17 minutes
+	public static final int BUCKET_COUNT = 32;
+
+	//Name the metrics are registered under in the platform MBean server
+	public static final String OBJECT_NAME = "application:type=Metrics";
+
+	//Timers by operation name, sorted for reporting
+	private static final TreeMap<String, Timer> timers = new TreeMap<String, Timer>();
+
+	private static volatile boolean enabled = true;
+
+	/**
+	 * Start timing an operation.
+	 * @param name Operation name, prefixed with its area: sql, planDate, calendar or pane
+	 * @return Sample to stop when the operation is finished, also when it finishes on another thread
+	 */
+	public static Sample start(String name) {
+		if (!Metrics.enabled) {
+			return Sample.DISABLED;
+		}
+		return new Sample(Metrics.getTimer(name), MetricsEvents.begin(name));
+	}
+
+	/**
+	 * @param name Operation name
+	 * @return Timer of the operation, created on first use
+	 */
+	public static synchronized Timer getTimer(String name) {
+		Timer timer = Metrics.timers.get(name);
+		if (timer == null) {
+			timer = new Timer(name);
+			Metrics.timers.put(name, timer);
+		}
+		return timer;
+	}
+
+	/**
+	 * @return Current values of all timers, sorted by operation name
+	 */
+	public static List<TimerSnapshot> getSnapshots() {
+		ArrayList<Timer> currentTimers;
+		synchronized (Metrics.class) {
+			currentTimers = new ArrayList<Timer>(Metrics.timers.values());
+		}
+		ArrayList<TimerSnapshot> snapshots = new ArrayList<TimerSnapshot>();
+		for (Timer timer : currentTimers) {
+			snapshots.add(timer.getSnapshot());
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Set all timers back to zero.
+	 */
+	public static void reset() {
+		ArrayList<Timer> currentTimers;
+		synchronized (Metrics.class) {
+			currentTimers = new ArrayList<Timer>(Metrics.timers.values());
+		}
+		for (Timer timer : currentTimers) {
+			timer.reset();
+		}
+	}
+
+	/**
+	 * Switch timing on or off. While off, start() returns a Sample that records nothing.
+	 * @param enabled True to time operations
+	 */
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return Metrics.enabled;
+	}
+
+	/**
+	 * @return Table of all timers with count, failures, mean, p50, p99 and max in milliseconds
+	 */
+	public static String getReport() {
+		StringBuilder report = new StringBuilder(String.format("%-24s %8s %6s %9s %9s %9s %9s%n", "operation", "count", "failed", "mean ms", "p50 ms", "p99 ms", "max ms"));
+		for (TimerSnapshot snapshot : Metrics.getSnapshots()) {
+			report.append(String.format("%-24s %8d %6d %9.3f %9.3f %9.3f %9.3f%n", snapshot.getName(), snapshot.getCount(), snapshot.getFailedCount(),
+					snapshot.getMeanMillis(), snapshot.getP50Millis(), snapshot.getP99Millis(), snapshot.getMaxMillis()));
+		}
+		return report.toString();
+	}
+
+	/**
+	 * @return Statistics of the caches, write-behind buffer and connection pool, one per line
+	 */
+	public static String getCacheStats() {
+		return "Day cache: " + PlanDateCache.getStats() + System.lineSeparator()
+				+ "Prefetcher: " + Prefetcher.getStats() + System.lineSeparator()
+				+ "Icons: " + IconCache.getStats() + System.lineSeparator()
+				+ "Unit of work: " + UnitOfWork.getStats() + System.lineSeparator()
+				+ "Connection pool: " + SQLConnector.getPoolStats();
+	}
+
+	/**
+	 * Publish the metrics as an MXBean in the platform MBean server, for JConsole, VisualVM or Java Mission Control.
+	 */
+	public static synchronized void registerMBean() {
+		try {
+			ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMXBeanImpl(), name);
+			}
+		} catch (JMException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * A running operation, recorded in its Timer and as a JFR event when stopped.
+	 */
+	public static class Sample {
+
+		//Returned while metrics are disabled
+		static final Sample DISABLED = new Sample(null, null);
+
+		private final Timer timer;
+		private final Object event;
+		private final long start;
+
+		private Sample(Timer timer, Object event) {
+			this.timer = timer;
+			this.event = event;
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * Record the operation as finished.
+		 */
+		public void stop() {
+			this.record(false);
+		}
+
+		/**
+		 * Record the operation as failed.
+		 */
+		public void fail() {
+			this.record(true);
+		}
+
+		private void record(boolean failed) {
+			if (this.timer == null) {
+				return;
+			}
+			this.timer.record(System.nanoTime() - this.start, failed);
+			MetricsEvents.commit(this.event, failed);
+		}
+	}
+
+	/**
+	 * Count, failures and latency histogram of one operation.
+	 */
+	public static class Timer {
+
+		private final String name;
+		private final long[] buckets = new long[Metrics.BUCKET_COUNT];
+		private long count;
+		private long failedCount;
+		private long totalNanos;
+		private long maxNanos;
+
+		Timer(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @param nanos Duration of the operation in nanoseconds
+		 * @param failed True if the operation failed
+		 */
+		public synchronized void record(long nanos, boolean failed) {
+			this.count++;
+			if (failed) {
+				this.failedCount++;
+			}
+			this.totalNanos += nanos;
+			this.maxNanos = Math.max(this.maxNanos, nanos);
+
+			//Bucket i holds durations below 2^i microseconds
+			long micros = nanos / 1000;
+			int bucket = 64 - Long.numberOfLeadingZeros(micros);
+			this.buckets[Math.min(bucket, Metrics.BUCKET_COUNT - 1)]++;
+		}
+
+		/**
+		 * @param percentile Percentile from 0 to 100
+		 * @return Upper bound of the histogram bucket holding the percentile in milliseconds, at most the maximum duration
+		 */
+		public synchronized double getPercentileMillis(double percentile) {
+			if (this.count == 0) {
+				return 0;
+			}
+			long rank = (long)Math.ceil(percentile / 100 * this.count);
+			long seen = 0;
+			for (int i = 0; i < Metrics.BUCKET_COUNT; i++) {
+				seen += this.buckets[i];
+				if (seen >= rank) {
+					return Math.min((1L << i) / 1000.0, this.maxNanos / 1e6);
+				}
+			}
+			return this.maxNanos / 1e6;
+		}
+
+		public synchronized TimerSnapshot getSnapshot() {
+			return new TimerSnapshot(this.name, this.count, this.failedCount, this.count == 0 ? 0 : this.totalNanos / 1e6 / this.count,
+					this.getPercentileMillis(50), this.getPercentileMillis(99), this.maxNanos / 1e6);
+		}
+
+		public synchronized void reset() {
+			this.count = 0;
+			this.failedCount = 0;
+			this.totalNanos = 0;
+			this.maxNanos = 0;
+			for (int i = 0; i < Metrics.BUCKET_COUNT; i++) {
+				this.buckets[i] = 0;
+			}
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+	/**
+	 * Values of a Timer at one moment, shown over JMX as composite data.
+	 */
+	public static class TimerSnapshot {
+
+		private final String name;
+		private final long count;
+		private final long failedCount;
+		private final double meanMillis;
+		private final double p50Millis;
+		private final double p99Millis;
+		private final double maxMillis;
+
+		@ConstructorProperties({"name", "count", "failedCount", "meanMillis", "p50Millis", "p99Millis", "maxMillis"})
+		public TimerSnapshot(String name, long count, long failedCount, double meanMillis, double p50Millis, double p99Millis, double maxMillis) {
+			this.name = name;
+			this.count = count;
+			this.failedCount = failedCount;
+			this.meanMillis = meanMillis;
+			this.p50Millis = p50Millis;
+			this.p99Millis = p99Millis;
+			this.maxMillis = maxMillis;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public long getFailedCount() {
+			return this.failedCount;
+		}
+
+		public double getMeanMillis() {
+			return this.meanMillis;
+		}
+
+		public double getP50Millis() {
+			return this.p50Millis;
+		}
+
+		public double getP99Millis() {
+			return this.p99Millis;
+		}
+
+		public double getMaxMillis() {
+			return this.maxMillis;
+		}
+	}
+
+	/**
+	 * MXBean view of the metrics.
+	 */
+	public static interface MetricsMXBean {
+
+		List<TimerSnapshot> getTimers();
+
+		String getReport();
+
+		String getCacheStats();
+
+		boolean isEnabled();
+
+		void setEnabled(boolean enabled);
+
+		void reset();
+	}
+
+	private static class MetricsMXBeanImpl implements MetricsMXBean {
+
+		@Override
+		public List<TimerSnapshot> getTimers() {
+			return Metrics.getSnapshots();
+		}
+
+		@Override
+		public String getReport() {
+			return Metrics.getReport();
+		}
+
+		@Override
+		public String getCacheStats() {
+			return Metrics.getCacheStats();
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return Metrics.isEnabled();
+		}
+
+		@Override
+		public void setEnabled(boolean enabled) {
+			Metrics.setEnabled(enabled);
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package application;
+
+/**
+ * JFR events for the operations timed by Metrics, one event type per area, shown under TaskManager in Java Mission Control.
+ * Record with -XX:StartFlightRecording or jcmd JFR.start. Flight Recorder is part of Java 11 and of Java 8 from update 262;
+ * on older JVMs no events are created and only the Metrics timers are kept.
+ * This class uses no Flight Recorder types, the events are made by FlightRecorderEvents, which is only loaded when the JVM has Flight Recorder.
+ */
+public final class MetricsEvents {
+
+	//Creates and commits the events, null if the JVM has no Flight Recorder
+	private static final Recorder RECORDER = MetricsEvents.createRecorder();
+
+	/**
+	 * Begin an event for an operation, if its event type is being recorded.
+	 * @param name Operation name, its prefix selects the event type
+	 * @return Event to commit when the operation finishes, or null
+	 */
+	static Object begin(String name) {
+		return MetricsEvents.RECORDER == null ? null : MetricsEvents.RECORDER.begin(name);
+	}
+
+	/**
+	 * Commit an event from begin().
+	 * @param event Event, or null if none was begun
+	 * @param failed True if the operation failed
+	 */
+	static void commit(Object event, boolean failed) {
+		if (event != null) {
+			MetricsEvents.RECORDER.commit(event, failed);
+		}
+	}
+
+	/**
+	 * @return FlightRecorderEvents, or null if the JVM has no Flight Recorder or the event types can't be made
+	 */
+	private static Recorder createRecorder() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (Recorder)Class.forName("application.FlightRecorderEvents").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Creates and commits events, implemented by FlightRecorderEvents.
+	 */
+	interface Recorder {
+
+		/**
+		 * @param name Operation name, its prefix selects the event type
+		 * @return Begun event, or null if its event type isn't being recorded
+		 */
+		Object begin(String name);
+
+		/**
+		 * @param event Event from begin()
+		 * @param failed True if the operation failed
+		 */
+		void commit(Object event, boolean failed);
+	}
+}
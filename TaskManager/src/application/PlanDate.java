@@ -1,44 +1,102 @@
 package application;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import javafx.beans.binding.Bindings;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 
 /**
  * Represents a date in the agenda. Holds a list of MainTasks.
+ * There is one PlanDate per date, get it with PlanDate.of(). It owns the task list of its day, so moving a task updates both days in memory.
+ * Task lists are changed on the JavaFX application thread.
  */
 public class PlanDate {
-	
-	LocalDate date;
-	ArrayList<MainTask> taskList = new ArrayList<MainTask>();
-	VBox taskBox = new VBox();
+
+	//Canonical PlanDate per date, weakly held so days nothing refers to anymore can be collected
+	private static final HashMap<LocalDate, DateReference> registry = new HashMap<LocalDate, DateReference>();
+	private static final ReferenceQueue<PlanDate> collectedDates = new ReferenceQueue<PlanDate>();
+
+	final LocalDate date;
+	//Observable so the ListView of a shown day follows changes to it
+	final ObservableList<MainTask> taskList = FXCollections.observableArrayList();
+	//Created by createDayBox() when the date is shown
+	ListView<MainTask> taskListView;
+	//Cells created for taskListView, released with it
+	private final ArrayList<MainTaskCell> taskCells = new ArrayList<MainTaskCell>();
+
+	//Load of the taskList from the database that hasn't finished yet, later loads of this date wait for it
+	private CompletableFuture<Void> pendingLoad;
+	//Counts changes to taskList made in memory, a load that read the database before a change reads it again
+	private int changeCount = 0;
+
+	private PlanDate(LocalDate date) {
+		this.date = date;
+	}
 
 	/**
-	 * Creates PlanDate for the specified date.
-	 * @param date
+	 * Get the PlanDate for a date, creating it if there is none yet.
+	 * @param date Date to get the PlanDate for
+	 * @return Canonical PlanDate of the date
 	 */
-	public PlanDate(LocalDate date) {
-		this.date = date;
+	public static synchronized PlanDate of(LocalDate date) {
+		//Forget collected PlanDates
+		DateReference collected;
+		while ((collected = (DateReference)PlanDate.collectedDates.poll()) != null) {
+			if (PlanDate.registry.get(collected.date) == collected) {
+				PlanDate.registry.remove(collected.date);
+			}
+		}
+
+		DateReference reference = PlanDate.registry.get(date);
+		PlanDate planDate = reference == null ? null : reference.get();
+		if (planDate == null) {
+			planDate = new PlanDate(date);
+			PlanDate.registry.put(date, new DateReference(planDate, PlanDate.collectedDates));
+		}
+		return planDate;
 	}
 
 	/**
-	 * Creates copy of a PlanDate.
-	 * @param another PlanDate to copy
+	 * Add a MainTask to the task list of this date in memory, without writing to the database.
+	 * @param task MainTask planned on this date
 	 */
-	public PlanDate (PlanDate another) {
-		this.date = another.date;
-		this.taskList = another.taskList;
+	void addTask(MainTask task) {
+		this.taskList.add(task);
+		this.changeCount++;
+	}
+
+	/**
+	 * Remove a MainTask from the task list of this date in memory, without writing to the database.
+	 * @param task MainTask no longer planned on this date
+	 */
+	void removeTask(MainTask task) {
+		this.taskList.remove(task);
+		this.changeCount++;
 	}
 	
 	@Override
@@ -52,51 +110,209 @@ public class PlanDate {
 	 * Retrieved MainTasks are stored in taskList in this PlanDate. SubTasks are stored in subTaskList in their respective MainTasks.
 	 */
 	public void getTasks() {
-		//Clear tasklist
-		this.taskList.clear();
+		ArrayList<PlanDate> planDates = new ArrayList<PlanDate>();
+		planDates.add(this);
+		PlanDate.getTasks(planDates);
+	}
+
+	/**
+	 * Gets tasks for a number of PlanDates from the SQLite database with one query for MainTasks and one for SubTasks.
+	 * Retrieved MainTasks are stored in taskList in their PlanDate. SubTasks are stored in subTaskList in their respective MainTasks.
+	 * Blocks until pending writes are finished; use getTasksAsync() on the JavaFX application thread.
+	 * @param planDates PlanDates to get tasks for, covering a range of dates
+	 */
+	public static void getTasks(List<PlanDate> planDates) {
+		Metrics.Sample sample = Metrics.start("planDate.getTasks");
+
+		//Write pending changes first so they are included in the results
+		UnitOfWork.flush();
+		AsyncSQLConnector.awaitWrites();
+		PlanDate.setTaskLists(PlanDate.readTasks(planDates));
+		sample.stop();
+	}
+
+	/**
+	 * Gets tasks for a number of PlanDates from the SQLite database on a reader thread, after pending writes are finished.
+	 * The taskLists of the PlanDates are replaced on the JavaFX application thread.
+	 * @param planDates PlanDates to get tasks for, covering a range of dates
+	 * @return CompletableFuture completed with the PlanDates once their taskLists are set
+	 */
+	public static CompletableFuture<List<PlanDate>> getTasksAsync(List<PlanDate> planDates) {
+		Metrics.Sample sample = Metrics.start("planDate.getTasksAsync");
+		UnitOfWork.flush();
+
+		//Wait for dates that are already loading instead of reading them twice
+		ArrayList<CompletableFuture<Void>> loads = new ArrayList<CompletableFuture<Void>>();
+		ArrayList<PlanDate> readDates = new ArrayList<PlanDate>();
+		for (PlanDate planDate : planDates) {
+			if (planDate.pendingLoad != null) {
+				loads.add(planDate.pendingLoad);
+			} else {
+				readDates.add(planDate);
+			}
+		}
+		if (!readDates.isEmpty()) {
+			loads.add(PlanDate.load(readDates));
+		}
+
+		CompletableFuture<Void> all = CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[loads.size()]));
+		all.whenComplete((ignored, exception) -> {
+			if (exception == null) {
+				sample.stop();
+			} else {
+				sample.fail();
+			}
+		});
+		return all.thenApply(ignored -> planDates);
+	}
+
+	/**
+	 * Reads tasks for PlanDates on a reader thread and replaces their taskLists on the JavaFX application thread.
+	 * Dates whose taskList changed in memory during the read are read again.
+	 * @param readDates PlanDates without a pending load
+	 * @return CompletableFuture completed once the taskLists are set
+	 */
+	private static CompletableFuture<Void> load(List<PlanDate> readDates) {
+		CompletableFuture<Void> load = new CompletableFuture<Void>();
+		HashMap<PlanDate, Integer> changeCounts = new HashMap<PlanDate, Integer>();
+		for (PlanDate planDate : readDates) {
+			planDate.pendingLoad = load;
+			changeCounts.put(planDate, planDate.changeCount);
+		}
+
+		AsyncSQLConnector.submitRead(() -> PlanDate.readTasks(readDates)).whenCompleteAsync((taskLists, exception) -> {
+			ArrayList<PlanDate> changedDates = new ArrayList<PlanDate>();
+			for (PlanDate planDate : readDates) {
+				if (planDate.pendingLoad == load) {
+					planDate.pendingLoad = null;
+				}
+				if (planDate.changeCount != changeCounts.get(planDate)) {
+					changedDates.add(planDate);
+				}
+			}
+			if (exception != null) {
+				load.completeExceptionally(exception);
+				return;
+			}
+
+			taskLists.keySet().removeAll(changedDates);
+			PlanDate.setTaskLists(taskLists);
+			if (changedDates.isEmpty()) {
+				load.complete(null);
+			} else {
+				PlanDate.getTasksAsync(changedDates).whenComplete((result, reloadException) -> {
+					if (reloadException != null) {
+						load.completeExceptionally(reloadException);
+					} else {
+						load.complete(null);
+					}
+				});
+			}
+		}, AsyncSQLConnector.FX_THREAD);
+
+		return load;
+	}
+
+	/**
+	 * Replaces the taskLists of PlanDates.
+	 * @param taskLists Map of PlanDates to their new taskList
+	 */
+	private static void setTaskLists(Map<PlanDate, ArrayList<MainTask>> taskLists) {
+		for (Map.Entry<PlanDate, ArrayList<MainTask>> entry : taskLists.entrySet()) {
+			entry.getKey().taskList.setAll(entry.getValue());
+		}
+	}
+
+	/**
+	 * Reads MainTasks and their SubTasks for a number of PlanDates from the SQLite database, without changing the PlanDates.
+	 * Can run on any thread.
+	 * @param planDates PlanDates to get tasks for, covering a range of dates
+	 * @return Map of each PlanDate to a new list of its MainTasks
+	 */
+	private static HashMap<PlanDate, ArrayList<MainTask>> readTasks(List<PlanDate> planDates) {
+		HashMap<PlanDate, ArrayList<MainTask>> taskLists = new HashMap<PlanDate, ArrayList<MainTask>>();
+		if (planDates.isEmpty()) {
+			return taskLists;
+		}
+		Metrics.Sample sample = Metrics.start("planDate.readTasks");
+
+		//Find date range
+		HashMap<LocalDate, PlanDate> dateMap = new HashMap<LocalDate, PlanDate>();
+		LocalDate startDate = planDates.get(0).date;
+		LocalDate endDate = startDate;
+		for (PlanDate planDate : planDates) {
+			taskLists.put(planDate, new ArrayList<MainTask>());
+			dateMap.put(planDate.date, planDate);
+			if (planDate.date.isBefore(startDate)) {
+				startDate = planDate.date;
+			}
+			if (planDate.date.isAfter(endDate)) {
+				endDate = planDate.date;
+			}
+		}
+		Object[] range = new Object[] {startDate, endDate};
 
 		//Get tasks from database
-		SQLConnector.read("SELECT * FROM tasks WHERE Date = '" + this.toString() + "'", rs -> {
+		HashMap<Integer, MainTask> mainTasks = new HashMap<Integer, MainTask>();
+		SQLConnector.read("SELECT * FROM tasks WHERE Date BETWEEN ? AND ?", range, rs -> {
+			try {
+				while (rs.next()) {
+					//Skip dates in the range that weren't asked for
+					PlanDate planDate = dateMap.get(SQLConnector.getDate(rs, "Date"));
+					if (planDate == null) {
+						continue;
+					}
+
+					//Create new main task and add to tasklist
+					MainTask newMainTask = new MainTask(rs.getInt("ID"), rs.getString("Name"), planDate, SQLConnector.getTime(rs, "Time"), SQLConnector.getBoolean(rs, "Completed"), ViewStateStore.isExpanded(rs.getInt("ID")), ViewStateStore.isEditMode(rs.getInt("ID")));
+					taskLists.get(planDate).add(newMainTask);
+					mainTasks.put(newMainTask.getID(), newMainTask);
+				}
+			} catch (SQLException e) {
+				System.out.println(e);
+			}
+		});
+
+		if (mainTasks.isEmpty()) {
+			sample.stop();
+			return taskLists;
+		}
+
+		//Get subtasks of all main tasks in the range
+		HashMap<Integer, ArrayList<SubTask>> subTaskLists = new HashMap<Integer, ArrayList<SubTask>>();
+		SQLConnector.read("SELECT subtasks.* FROM subtasks JOIN tasks ON subtasks.MainTaskID = tasks.ID WHERE tasks.Date BETWEEN ? AND ? ORDER BY subtasks.ID", range, rs -> {
 			try {
 				while (rs.next()) {
-					//Parse string result from time query to LocalTime if it's not null
-					LocalTime taskTime = null;
-					if (rs.getString("Time") != null) {
-						taskTime = LocalTime.parse(rs.getString("Time"));
+					MainTask mainTask = mainTasks.get(rs.getInt("MainTaskID"));
+					if (mainTask == null) {
+						continue;
 					}
 
-					//Create new main task
-					MainTask newMainTask = new MainTask(rs.getInt("ID"), rs.getString("Name"), this, taskTime, Boolean.parseBoolean(rs.getString("Completed")), Boolean.parseBoolean(rs.getString("Expanded")), Boolean.parseBoolean(rs.getString("Editmode")));
-
-					//Get subtasks for main task
-					SQLConnector.read("SELECT * FROM subtasks WHERE MainTaskID = " + newMainTask.getID(), rsSubTask -> {
-						try {
-							while (rsSubTask.next()) {
-								//Create subtask
-								SubTask newSubTask = new SubTask(newMainTask, rsSubTask.getInt("ID"), rsSubTask.getString("Name"), Boolean.parseBoolean(rsSubTask.getString("Completed")));
-								//Add to subtasklist
-								newMainTask.addToSubTaskList(newSubTask);
-							}
-						} catch (SQLException e) {
-							System.out.println(e);
-						}
-					});
-					
-					//Add main task to tasklist
-					this.taskList.add(newMainTask);
+					//Create subtask
+					SubTask newSubTask = new SubTask(mainTask, rs.getInt("ID"), rs.getString("Name"), SQLConnector.getBoolean(rs, "Completed"));
+					subTaskLists.computeIfAbsent(mainTask.getID(), iD -> new ArrayList<SubTask>()).add(newSubTask);
 				}
 			} catch (SQLException e) {
 				System.out.println(e);
 			}
 		});
+
+		//Set subtasklists in one go
+		for (Map.Entry<Integer, ArrayList<SubTask>> entry : subTaskLists.entrySet()) {
+			mainTasks.get(entry.getKey()).setSubTaskList(entry.getValue());
+		}
+
+		sample.stop();
+		return taskLists;
 	}
 	
 	/**
-	 * Creates a UI element containing the MainTaskPane of all MainTasks in this PlanDate.
-	 * The element VBox taskBox holds the MainTaskPanes and can be updated with updateTaskBox() when tasks are changed.
-	 * @return VBox containing date label and MainTaskPanes
+	 * Creates a UI element showing the MainTasks in this PlanDate.
+	 * MainTasks are shown in a ListView following taskList, which only has MainTaskPanes for the visible rows and reuses them while scrolling.
+	 * @return VBox containing date label, task list, add task and clear day buttons
 	 */
 	public VBox createDayBox() {
+		Metrics.Sample sample = Metrics.start("pane.dayBox");
 		VBox dayBox = new VBox();
 		dayBox.setPadding(new Insets(0, 3, 3, 3));
 		dayBox.setStyle("-fx-border-color: grey; -fx-border-width: 1 0 1 1;");
@@ -109,40 +325,104 @@ public class PlanDate {
 		Label dayOfWeekLabel = new Label(this.date.getDayOfWeek().toString().substring(0,3) + " " + this.toString().substring(8, 10));
 		dayOfWeekLabel.setFont(new Font(dayOfWeekLabel.getFont().getName(), 12));
 
-		//Labels for tasks with spacing of 3 between tasks and between following add task button
-		this.taskBox = new VBox();
-		this.taskBox.setSpacing(3);
-		this.taskBox.setPadding(new Insets(0, 0, 3, 0));
+		//Virtualized list of tasks, spacing between tasks is set in the stylesheet
+		this.clearDayBox();
+		this.taskListView = new ListView<MainTask>(this.taskList);
+		this.taskListView.getStyleClass().add("taskList");
+		this.taskListView.setCellFactory(listView -> {
+			MainTaskCell cell = new MainTaskCell();
+			this.taskCells.add(cell);
+			return cell;
+		});
+		this.taskListView.setFocusTraversable(false);
+		//Preferred rather than minimum height, so days of a week can shrink with the window and scroll their tasks
+		this.taskListView.setPrefHeight(150);
+		VBox.setVgrow(this.taskListView, Priority.ALWAYS);
 
 		//Add task button
 		Button addTaskButton = new Button();
 		addTaskButton.setStyle("-fx-border-color: black; -fx-border-width: 1;");
 		addTaskButton.setMinSize(35, 35);
 		addTaskButton.setMaxSize(35, 35);
-		Image addImage = new Image(getClass().getResourceAsStream("ButtonEdit.png"));
+		Image addImage = IconCache.get("ButtonEdit.png");
 		ImageView addImageView = new ImageView(addImage);
 		addImageView.fitHeightProperty().bind(addTaskButton.heightProperty());
 		addImageView.fitWidthProperty().bind(addTaskButton.widthProperty());
 		addTaskButton.setGraphic(addImageView);
 		addTaskButton.setOnAction(e -> {
 			MainTask newTask = new MainTask(this);
-			this.taskBox.getChildren().add(newTask.taskPane);
 			newTask.setExpanded(true);
 			newTask.setEditMode(true);
+			this.addTask(newTask);
+			this.taskListView.scrollTo(newTask);
 			newTask.updateSQL();
+			UnitOfWork.flush();
+		});
+
+		//Clear day button deletes all tasks of the day in one transaction, after confirmation
+		Button clearDayButton = new Button();
+		clearDayButton.setStyle("-fx-border-color: black; -fx-border-width: 1;");
+		clearDayButton.setMinSize(35, 35);
+		clearDayButton.setMaxSize(35, 35);
+		Image clearImage = IconCache.get("ButtonDelete.png");
+		ImageView clearImageView = new ImageView(clearImage);
+		clearImageView.fitHeightProperty().bind(clearDayButton.heightProperty());
+		clearImageView.fitWidthProperty().bind(clearDayButton.widthProperty());
+		clearDayButton.setGraphic(clearImageView);
+		clearDayButton.disableProperty().bind(Bindings.isEmpty(this.taskList));
+		clearDayButton.setOnAction(e -> {
+			Alert alert = new Alert(AlertType.CONFIRMATION, "Delete all " + this.taskList.size() + " tasks of " + this.date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")) + "?");
+			alert.setHeaderText(null);
+			if (alert.showAndWait().filter(button -> button == ButtonType.OK).isPresent()) {
+				this.deleteTasks(this.taskList);
+			}
 		});
-		dayBox.getChildren().addAll(dayOfWeekLabel, this.taskBox, addTaskButton);
 
+		HBox buttonBox = new HBox(3);
+		buttonBox.getChildren().addAll(addTaskButton, clearDayButton);
+		dayBox.getChildren().addAll(dayOfWeekLabel, this.taskListView, buttonBox);
+
+		sample.stop();
 		return dayBox;
 	}
+
+	/**
+	 * Detaches the ListView created by createDayBox() from taskList, once the day is no longer shown.
+	 * The MainTaskPanes of its cells are released, so they stop following the tasks, which stay in memory while the day is cached.
+	 */
+	public void clearDayBox() {
+		if (this.taskListView != null) {
+			this.taskListView.setItems(null);
+			this.taskListView = null;
+		}
+		for (MainTaskCell cell : this.taskCells) {
+			cell.release();
+		}
+		this.taskCells.clear();
+	}
 	
 	/**
-	 * Updates taskBox with MainTaskPanes of MainTasks in this PlanDate.
+	 * Deletes many MainTasks of this PlanDate at once, in one database transaction. Used by the clear day button.
+	 * @param tasks MainTasks to delete
+	 * @return CompletableFuture completed when the tasks are deleted from the database
 	 */
-	public void updateTaskBox() {
-		this.taskBox.getChildren().clear();
-		for (MainTask task : this.taskList) {
-			this.taskBox.getChildren().add(task.taskPane);
+	public CompletableFuture<Void> deleteTasks(Collection<MainTask> tasks) {
+		ArrayList<MainTask> deletedTasks = new ArrayList<MainTask>(tasks);
+		this.taskList.removeAll(deletedTasks);
+		this.changeCount++;
+		return MainTask.deleteSQL(deletedTasks);
+	}
+
+	/**
+	 * Weak reference to a PlanDate in the registry, remembering its date so the entry can be removed once the PlanDate is collected.
+	 */
+	private static class DateReference extends WeakReference<PlanDate> {
+
+		final LocalDate date;
+
+		DateReference(PlanDate planDate, ReferenceQueue<PlanDate> queue) {
+			super(planDate, queue);
+			this.date = planDate.date;
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of loaded PlanDates by date, so navigating back and forth in the CalendarPane doesn't reload days from the database.
+ * Bounded by a number of days and a total number of MainTasks; the least recently used days are evicted first.
+ * Cached days are the canonical PlanDates, so moving, adding and deleting tasks keeps them up to date in memory.
+ */
+public final class PlanDateCache {
+
+	//Default bounds
+	public static final int DEFAULT_MAX_DAYS = 120;
+	public static final int DEFAULT_MAX_TASKS = 5000;
+
+	//Cached days, least recently used first
+	private static final LinkedHashMap<LocalDate, PlanDate> planDates = new LinkedHashMap<LocalDate, PlanDate>(16, 0.75f, true);
+	private static int maxDays = DEFAULT_MAX_DAYS;
+	private static int maxTasks = DEFAULT_MAX_TASKS;
+
+	//Metrics
+	private static long hitCount = 0;
+	private static long missCount = 0;
+	private static long evictionCount = 0;
+
+	/**
+	 * Set the cache bounds, evicting days if the cache is now too large.
+	 * @param maxDays Maximum number of cached days
+	 * @param maxTasks Maximum number of MainTasks in all cached days together
+	 */
+	public static synchronized void setBounds(int maxDays, int maxTasks) {
+		PlanDateCache.maxDays = maxDays;
+		PlanDateCache.maxTasks = maxTasks;
+		PlanDateCache.evict();
+	}
+
+	/**
+	 * Get a cached PlanDate, marking it as recently used.
+	 * @param date Date to look up
+	 * @return Loaded PlanDate for the date, or null if it isn't cached
+	 */
+	public static synchronized PlanDate get(LocalDate date) {
+		PlanDate planDate = PlanDateCache.planDates.get(date);
+		if (planDate == null) {
+			PlanDateCache.missCount++;
+		} else {
+			PlanDateCache.hitCount++;
+		}
+		return planDate;
+	}
+
+	/**
+	 * @param date Date to look up
+	 * @return True if the date is cached; doesn't count as a use
+	 */
+	public static synchronized boolean contains(LocalDate date) {
+		return PlanDateCache.planDates.containsKey(date);
+	}
+
+	/**
+	 * Add loaded PlanDates to the cache. Loaded days are the canonical PlanDates, so a day changed while it was loading is still up to date.
+	 * @param loadedDates PlanDates with their tasks loaded
+	 */
+	public static synchronized void putAll(List<PlanDate> loadedDates) {
+		for (PlanDate planDate : loadedDates) {
+			PlanDateCache.planDates.put(planDate.date, planDate);
+		}
+		PlanDateCache.evict();
+	}
+
+	/**
+	 * @return Summary of cache size, hits, misses and evictions
+	 */
+	public static synchronized String getStats() {
+		long lookups = PlanDateCache.hitCount + PlanDateCache.missCount;
+		return String.format("days %d/%d, tasks %d/%d, hit %d miss %d (%.1f%%), evicted %d",
+				PlanDateCache.planDates.size(), PlanDateCache.maxDays, PlanDateCache.countTasks(), PlanDateCache.maxTasks,
+				PlanDateCache.hitCount, PlanDateCache.missCount, lookups == 0 ? 0 : 100.0 * PlanDateCache.hitCount / lookups,
+				PlanDateCache.evictionCount);
+	}
+
+	public static synchronized long getHitCount() {
+		return PlanDateCache.hitCount;
+	}
+
+	public static synchronized long getMissCount() {
+		return PlanDateCache.missCount;
+	}
+
+	/**
+	 * Evict least recently used days until the cache is within its bounds.
+	 * Tasks are counted when evicting, so tasks added, moved or removed since a day was cached are included.
+	 */
+	private static void evict() {
+		int taskCount = PlanDateCache.countTasks();
+		Iterator<Map.Entry<LocalDate, PlanDate>> iterator = PlanDateCache.planDates.entrySet().iterator();
+		while (iterator.hasNext() && (PlanDateCache.planDates.size() > PlanDateCache.maxDays || taskCount > PlanDateCache.maxTasks)) {
+			taskCount -= iterator.next().getValue().taskList.size();
+			iterator.remove();
+			PlanDateCache.evictionCount++;
+		}
+	}
+
+	/**
+	 * @return Number of MainTasks in all cached days together
+	 */
+	private static int countTasks() {
+		int taskCount = 0;
+		for (PlanDate planDate : PlanDateCache.planDates.values()) {
+			taskCount += planDate.taskList.size();
+		}
+		return taskCount;
+	}
+}
@@ -0,0 +1,159 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the ranges before and after the shown range into the PlanDateCache in the background, so previous and next navigation usually finds its days cached.
+ * A prefetch starts after a short delay and backs off while writes are pending or changes are waiting to be flushed, so it never competes with foreground edits.
+ * Each new prefetch cancels the previous one; cancel() drops it when the user jumps elsewhere.
+ */
+public final class Prefetcher {
+
+	//Milliseconds to wait after a range is shown before prefetching, so quick navigation doesn't prefetch every step
+	public static final long DEFAULT_DELAY = 250;
+	//Milliseconds to wait before trying again while writes are pending
+	public static final long DEFAULT_BACKOFF = 500;
+	//Number of times to back off before giving up
+	public static final int MAX_ATTEMPTS = 10;
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Prefetcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//Increased by every prefetch and cancellation, a prefetch only continues while its generation is current
+	private static long generation = 0;
+
+	private static boolean enabled = true;
+
+	//Metrics
+	private static long prefetchedDays = 0;
+	private static long throttledCount = 0;
+	private static long cancelledCount = 0;
+
+	/**
+	 * Prefetch the ranges directly before and after a shown range, cancelling any earlier prefetch.
+	 * Call on the JavaFX application thread.
+	 * @param startDate First shown date
+	 * @param daysShown Number of shown days, also the length of the prefetched ranges
+	 */
+	public static void prefetch(LocalDate startDate, int daysShown) {
+		long prefetch;
+		synchronized (Prefetcher.class) {
+			if (!Prefetcher.enabled) {
+				return;
+			}
+			prefetch = ++Prefetcher.generation;
+		}
+		Prefetcher.schedule(prefetch, startDate, daysShown, Prefetcher.DEFAULT_DELAY, 1);
+	}
+
+	/**
+	 * Cancel the current prefetch. Loads already running finish, but their days aren't cached.
+	 */
+	public static synchronized void cancel() {
+		Prefetcher.generation++;
+		Prefetcher.cancelledCount++;
+	}
+
+	public static synchronized void setEnabled(boolean enabled) {
+		Prefetcher.enabled = enabled;
+		if (!enabled) {
+			Prefetcher.generation++;
+		}
+	}
+
+	/**
+	 * @return Summary of prefetched days, throttled attempts and cancellations
+	 */
+	public static synchronized String getStats() {
+		return "prefetched " + Prefetcher.prefetchedDays + " days, throttled " + Prefetcher.throttledCount + ", cancelled " + Prefetcher.cancelledCount;
+	}
+
+	private static synchronized boolean isCurrent(long prefetch) {
+		return prefetch == Prefetcher.generation;
+	}
+
+	/**
+	 * Run an attempt of a prefetch on the JavaFX application thread after a delay.
+	 */
+	private static void schedule(long prefetch, LocalDate startDate, int daysShown, long delay, int attempt) {
+		Prefetcher.scheduler.schedule(() -> {
+			if (Prefetcher.isCurrent(prefetch)) {
+				AsyncSQLConnector.FX_THREAD.execute(() -> Prefetcher.load(prefetch, startDate, daysShown, attempt));
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Load uncached days of the ranges around a shown range, or try again later while the database is busy with writes.
+	 */
+	private static void load(long prefetch, LocalDate startDate, int daysShown, int attempt) {
+		if (!Prefetcher.isCurrent(prefetch)) {
+			return;
+		}
+
+		//Back off while foreground changes are being written
+		if (AsyncSQLConnector.hasPendingWrites() || UnitOfWork.isDirty()) {
+			synchronized (Prefetcher.class) {
+				Prefetcher.throttledCount++;
+			}
+			if (attempt < Prefetcher.MAX_ATTEMPTS) {
+				Prefetcher.schedule(prefetch, startDate, daysShown, Prefetcher.DEFAULT_BACKOFF, attempt + 1);
+			}
+			return;
+		}
+
+		//Next range first, it's the most likely navigation, then the previous range once it's loaded.
+		//Loaded separately, as one load reads everything between its first and last date, which would include the shown range
+		ArrayList<PlanDate> nextDates = new ArrayList<PlanDate>();
+		for (int i = daysShown; i < 2 * daysShown; i++) {
+			Prefetcher.addIfMissing(nextDates, startDate.plusDays(i));
+		}
+		ArrayList<PlanDate> previousDates = new ArrayList<PlanDate>();
+		for (int i = daysShown; i >= 1; i--) {
+			Prefetcher.addIfMissing(previousDates, startDate.minusDays(i));
+		}
+
+		Prefetcher.loadRange(prefetch, nextDates).thenRunAsync(() -> {
+			Prefetcher.loadRange(prefetch, previousDates);
+		}, AsyncSQLConnector.FX_THREAD);
+	}
+
+	/**
+	 * Load uncached days of a range into the PlanDateCache, unless the prefetch was cancelled.
+	 * @param prefetch Generation of the prefetch
+	 * @param missingDates Uncached PlanDates of one range
+	 * @return CompletableFuture completed when the days are loaded, also if loading failed or was skipped
+	 */
+	private static CompletableFuture<Void> loadRange(long prefetch, List<PlanDate> missingDates) {
+		if (missingDates.isEmpty() || !Prefetcher.isCurrent(prefetch)) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		return PlanDate.getTasksAsync(missingDates).thenAccept(loadedDates -> {
+			if (Prefetcher.isCurrent(prefetch)) {
+				PlanDateCache.putAll(loadedDates);
+				synchronized (Prefetcher.class) {
+					Prefetcher.prefetchedDays += loadedDates.size();
+				}
+			}
+		}).exceptionally(e -> {
+			System.out.println(e);
+			return null;
+		});
+	}
+
+	private static void addIfMissing(ArrayList<PlanDate> missingDates, LocalDate date) {
+		if (!PlanDateCache.contains(date)) {
+			missingDates.add(PlanDate.of(date));
+		}
+	}
+}
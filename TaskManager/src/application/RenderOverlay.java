@@ -0,0 +1,212 @@
+package application;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
+import javafx.scene.text.Font;
+
+/**
+ * Extends Label. Overlay on the CalendarPane showing rendering performance, separate from the database timings in Metrics:
+ * time between frames, pulse time, time of the CSS and layout passes of the days grid, nodes in the days grid,
+ * and for the last navigation the time until its days were built, which includes loading tasks, and from there until the end of the first pulse showing them.
+ * Measured with JavaFX 8 API: an AnimationTimer is called at the start of each pulse and posts a runnable that runs once the pulse,
+ * with its CSS, layout and scene graph sync, is done. The timer applies CSS to the days grid ahead of the pulse's CSS pass to time it,
+ * and the days grid is laid out in a pane made by wrap(), which times it.
+ * The timer only runs while the overlay is shown. While it runs, JavaFX pulses every frame.
+ */
+public class RenderOverlay extends Label {
+
+	//Nanoseconds between refreshes of the shown values, which are the maximums over this window
+	public static final long REFRESH_INTERVAL = 500000000L;
+
+	private final Node countedNode;
+
+	private final Runnable pulseEndedRunnable = this::pulseEnded;
+	private final AnimationTimer pulseTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			RenderOverlay.this.pulseStarted();
+		}
+	};
+
+	//Current pulse
+	private long pulseStart;
+
+	//Maximums since the last refresh
+	private long maxFrameInterval;
+	private long maxPulseTime;
+	private long maxCssTime;
+	private long maxLayoutTime;
+	private int pulseCount;
+	private long lastRefresh;
+
+	//Last navigation: started, days built, and the resulting times
+	private long navigationStart;
+	private long contentShown;
+	private double loadMillis;
+	private double firstFrameMillis;
+
+	/**
+	 * Creates a hidden overlay.
+	 * @param countedNode Node whose descendants are counted, the days grid
+	 */
+	public RenderOverlay(Node countedNode) {
+		this.countedNode = countedNode;
+		this.setFont(Font.font("Monospaced", 11));
+		this.setPadding(new Insets(3));
+		this.setStyle("-fx-background-color: rgba(255, 255, 255, 0.85); -fx-border-color: grey; -fx-border-width: 0 0 1 1;");
+		this.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+		this.setAlignment(Pos.TOP_LEFT);
+		this.setMouseTransparent(true);
+		this.setVisible(false);
+	}
+
+	/**
+	 * Wraps a node in a pane that, while the overlay is shown, lays out the node and its descendants in its own layout pass and times it.
+	 * @param content Node to time, the days grid passed to the constructor
+	 * @return Pane holding the node, to add in its place
+	 */
+	public Parent wrap(Node content) {
+		return new TimedPane(content);
+	}
+
+	/**
+	 * Shows or hides the overlay, running the pulse timer only while shown.
+	 * @param showing True to show the overlay
+	 */
+	public void setShowing(boolean showing) {
+		if (showing == this.isVisible()) {
+			return;
+		}
+		this.setVisible(showing);
+		if (showing) {
+			this.lastRefresh = System.nanoTime();
+			this.pulseStart = 0;
+			this.pulseTimer.start();
+			this.refresh();
+		} else {
+			this.pulseTimer.stop();
+		}
+	}
+
+	public void toggle() {
+		this.setShowing(!this.isVisible());
+	}
+
+	/**
+	 * Called when a navigation starts, before its tasks are loaded.
+	 */
+	public void markNavigation() {
+		this.navigationStart = System.nanoTime();
+		this.contentShown = 0;
+	}
+
+	/**
+	 * Called when the days of the last navigation are built and added to the days grid. The next pulse lays them out for the first frame showing them.
+	 */
+	public void markContentShown() {
+		if (this.navigationStart != 0) {
+			this.contentShown = System.nanoTime();
+		}
+	}
+
+	private void pulseStarted() {
+		long now = System.nanoTime();
+		if (this.pulseStart != 0) {
+			this.maxFrameInterval = Math.max(this.maxFrameInterval, now - this.pulseStart);
+		}
+		this.pulseStart = now;
+		this.pulseCount++;
+
+		//Timers run before the CSS pass of the pulse, which then finds the days grid already styled
+		this.countedNode.applyCss();
+		this.maxCssTime = Math.max(this.maxCssTime, System.nanoTime() - now);
+
+		//Runs after this pulse, as the pulse is itself a runnable on the JavaFX application thread
+		Platform.runLater(this.pulseEndedRunnable);
+	}
+
+	private void pulseEnded() {
+		if (!this.isVisible()) {
+			return;
+		}
+		long now = System.nanoTime();
+		this.maxPulseTime = Math.max(this.maxPulseTime, now - this.pulseStart);
+
+		//First pulse after the days of a navigation were added, content added after this pulse started waits for the next one
+		if (this.contentShown != 0 && this.contentShown < this.pulseStart) {
+			this.loadMillis = (this.contentShown - this.navigationStart) / 1e6;
+			this.firstFrameMillis = (now - this.contentShown) / 1e6;
+			Metrics.getTimer("render.firstFrame").record(now - this.contentShown, false);
+			this.navigationStart = 0;
+			this.contentShown = 0;
+		}
+
+		if (now - this.lastRefresh >= RenderOverlay.REFRESH_INTERVAL) {
+			this.refresh();
+			this.lastRefresh = now;
+			this.maxFrameInterval = 0;
+			this.maxPulseTime = 0;
+			this.maxCssTime = 0;
+			this.maxLayoutTime = 0;
+			this.pulseCount = 0;
+		}
+	}
+
+	/**
+	 * Shows the values measured since the last refresh.
+	 */
+	private void refresh() {
+		this.setText(String.format("pulses     %5d%nframe max  %8.1f ms%npulse max  %8.1f ms%ncss max    %8.1f ms%nlayout max %8.1f ms%nnodes      %5d%nnav load   %8.1f ms%nnav frame  %8.1f ms",
+				this.pulseCount, this.maxFrameInterval / 1e6, this.maxPulseTime / 1e6, this.maxCssTime / 1e6, this.maxLayoutTime / 1e6,
+				RenderOverlay.countNodes(this.countedNode), this.loadMillis, this.firstFrameMillis));
+	}
+
+	/**
+	 * @param node Node to count
+	 * @return Number of nodes in the tree under a node, including the node itself and the nodes of control skins
+	 */
+	public static int countNodes(Node node) {
+		int count = 1;
+		if (node instanceof Parent) {
+			for (Node child : ((Parent)node).getChildrenUnmodifiable()) {
+				count += RenderOverlay.countNodes(child);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Extends StackPane. Holds the days grid and, while the overlay is shown, lays out its whole tree within its own layoutChildren(), so the time can be measured there.
+	 */
+	private class TimedPane extends StackPane {
+
+		TimedPane(Node content) {
+			super(content);
+		}
+
+		@Override
+		protected void layoutChildren() {
+			if (!RenderOverlay.this.isVisible()) {
+				super.layoutChildren();
+				return;
+			}
+			long start = System.nanoTime();
+			super.layoutChildren();
+
+			//Lay out descendants now instead of after this method returns, so they are included
+			for (Node child : this.getChildren()) {
+				if (child instanceof Parent) {
+					((Parent)child).layout();
+				}
+			}
+			RenderOverlay.this.maxLayoutTime = Math.max(RenderOverlay.this.maxLayoutTime, System.nanoTime() - start);
+		}
+	}
+}
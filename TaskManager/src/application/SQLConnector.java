@@ -1,23 +1,170 @@
 package application;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
+import org.sqlite.ProgressHandler;
+
+import application.ConnectionPool.PooledConnection;
+import application.ConnectionPool.PoolStats;
+
 /**
  * Connector class with static methods for connecting to an SQLite database.
+ * Connections are borrowed from a ConnectionPool that keeps them open between queries, and set up with the settings of an SQLiteProfile.
+ * Every statement is timed in Metrics, failed statements are counted there.
  */
 public final class SQLConnector {
 	
 	//Database file location
 	public static String url;
+
+	//Default pool size and milliseconds an idle connection stays open
+	public static final int DEFAULT_POOL_SIZE = 4;
+	public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+	//Virtual machine instructions between checks whether a cancellable read is cancelled
+	public static final int PROGRESS_INTERVAL = 1000;
+
+	//Pool of open connections to the database
+	private static ConnectionPool pool;
+	private static int poolSize = DEFAULT_POOL_SIZE;
+	private static long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	//SQLite settings for every connection, and the thread running periodic WAL checkpoints
+	private static SQLiteProfile profile = new SQLiteProfile();
+	private static ScheduledExecutorService checkpointer;
 	
 	/**
-	 * Set database file location.
+	 * Set database file location. Closes connections to a previously set database.
 	 * @param url Database file location
 	 */
-	public static void setUrl(String url) {
+	public static synchronized void setUrl(String url) {
 		SQLConnector.url = url;
+		SQLConnector.resetPool();
+	}
+
+	/**
+	 * Set connection pool size and idle timeout. Closes connections opened with the previous settings.
+	 * @param poolSize Maximum number of connections open at the same time
+	 * @param idleTimeout Milliseconds an unused connection stays open before it is closed
+	 */
+	public static synchronized void configurePool(int poolSize, long idleTimeout) {
+		SQLConnector.poolSize = poolSize;
+		SQLConnector.idleTimeout = idleTimeout;
+		SQLConnector.resetPool();
+	}
+
+	/**
+	 * Set the SQLite settings applied to every connection. Closes connections opened with the previous settings.
+	 * @param profile SQLiteProfile to apply
+	 */
+	public static synchronized void setProfile(SQLiteProfile profile) {
+		SQLConnector.profile = profile;
+		SQLConnector.resetPool();
+	}
+
+	public static synchronized SQLiteProfile getProfile() {
+		return SQLConnector.profile;
+	}
+
+	/**
+	 * Close all pooled connections. Called when the application exits.
+	 * In WAL mode the log is checkpointed and truncated first, so the database file is complete on its own.
+	 */
+	public static synchronized void shutdown() {
+		if (SQLConnector.checkpointer != null) {
+			SQLConnector.checkpointer.shutdownNow();
+			SQLConnector.checkpointer = null;
+		}
+		if (SQLConnector.pool != null) {
+			if (SQLConnector.profile.getJournalMode() == SQLiteProfile.JournalMode.WAL) {
+				SQLConnector.checkpoint("TRUNCATE");
+			}
+			SQLConnector.pool.shutdown();
+			SQLConnector.pool = null;
+		}
+	}
+
+	/**
+	 * Get connection pool metrics such as connections in use and time spent waiting for a connection.
+	 * @return PoolStats of the current pool, or null if no database is set
+	 */
+	public static synchronized PoolStats getPoolStats() {
+		return SQLConnector.pool == null ? null : SQLConnector.pool.getStats();
+	}
+
+	/**
+	 * Borrow a connection from the pool. Closing the PooledConnection returns it to the pool.
+	 * @return PooledConnection to the database
+	 * @throws SQLException If no database is set or no connection can be opened
+	 */
+	static PooledConnection getConnection() throws SQLException {
+		ConnectionPool currentPool;
+		synchronized (SQLConnector.class) {
+			currentPool = SQLConnector.pool;
+		}
+		if (currentPool == null) {
+			throw new SQLException("No database set");
+		}
+		return currentPool.acquire();
+	}
+
+	private static void resetPool() {
+		SQLConnector.shutdown();
+		if (SQLConnector.url != null) {
+			SQLiteProfile currentProfile = SQLConnector.profile;
+			SQLConnector.pool = new ConnectionPool(SQLConnector.url, SQLConnector.poolSize, SQLConnector.idleTimeout, connection -> SQLConnector.initConnection(connection, currentProfile));
+
+			//Checkpoint in the background so the WAL file doesn't grow until a commit happens to trigger it
+			long interval = currentProfile.getCheckpointInterval();
+			if (currentProfile.getJournalMode() == SQLiteProfile.JournalMode.WAL && interval > 0) {
+				SQLConnector.checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "SQLite checkpointer");
+					thread.setDaemon(true);
+					return thread;
+				});
+				SQLConnector.checkpointer.scheduleWithFixedDelay(() -> SQLConnector.checkpoint("PASSIVE"), interval, interval, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Copy changes from the WAL file into the database file.
+	 * @param mode PASSIVE to copy what can be copied without waiting for other connections, TRUNCATE to copy everything and empty the WAL file
+	 */
+	public static void checkpoint(String mode) {
+		Metrics.Sample sample = Metrics.start("sql.checkpoint");
+		try (
+				PooledConnection pooled = SQLConnector.getConnection();
+				Statement statement = pooled.getConnection().createStatement();
+			) {
+			statement.execute("PRAGMA wal_checkpoint(" + mode + ")");
+			sample.stop();
+		} catch (SQLException e) {
+			System.out.println(e);
+			sample.fail();
+		}
+	}
+
+	/**
+	 * Sets up a newly opened connection with the settings of a profile. SQLite doesn't enforce foreign keys unless switched on per connection.
+	 * @param connection New connection to the database
+	 * @param profile SQLiteProfile to apply
+	 * @throws SQLException If a setting can't be applied
+	 */
+	private static void initConnection(Connection connection, SQLiteProfile profile) throws SQLException {
+		profile.apply(connection);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA foreign_keys = ON");
+		}
 	}
 
 	/**
@@ -25,43 +172,45 @@ public final class SQLConnector {
 	 * @param tableStrings ArrayList of SQL command strings, one for each table, formatted as "CREATE TABLE IF NOT EXISTS [tableName] ([columns])"
 	 */
 	public static void checkTables(ArrayList<String> tableStrings) {
+		Metrics.Sample sample = Metrics.start("sql.checkTables");
 		try(
-				Connection connection = DriverManager.getConnection(SQLConnector.url);
-				Statement statement = connection.createStatement();
+				PooledConnection pooled = SQLConnector.getConnection();
+				Statement statement = pooled.getConnection().createStatement();
 				) {
 
 			for (String tableString : tableStrings) {
 				statement.execute(tableString);
 			}
+			sample.stop();
 		} catch (SQLException e) {
 			System.out.println(e);
+			sample.fail();
 		}
 	}
 
 	/**
 	 * Insert data into SQLite database with protection against injection.
 	 * @param insertString SQL command string, formatted as "INSERT INTO [tableName] ([columns) VALUES ([?, times columnCount])";
-	 * @param data Array of Strings of data to insert, with the number of Strings matching the number of columns
+	 * @param data Array of values to insert, with the number of values matching the number of columns, see bind()
 	 * @return Auto-incremented ID of the inserted row in the table
 	 */
-	public static int insert (String insertString, String[] data) {
+	public static int insert (String insertString, Object[] data) {
 		int ID = 0;
 
-		try(
-				Connection connection = DriverManager.getConnection(SQLConnector.url);
-				PreparedStatement statement = connection.prepareStatement(insertString, Statement.RETURN_GENERATED_KEYS);
-				) {
-			for (int i = 0; i < data.length; i++) {
-				statement.setString(i + 1, data[i]);
-			}
+		Metrics.Sample sample = Metrics.start("sql.insert");
+		try (PooledConnection pooled = SQLConnector.getConnection()) {
+			PreparedStatement statement = pooled.prepare(insertString, Statement.RETURN_GENERATED_KEYS);
+			SQLConnector.bind(statement, data);
 			statement.executeUpdate();
-			ResultSet resultSet = statement.getGeneratedKeys();
-			if (resultSet.next()) {
-				ID = resultSet.getInt(1);
+			try (ResultSet resultSet = statement.getGeneratedKeys()) {
+				if (resultSet.next()) {
+					ID = resultSet.getInt(1);
+				}
 			}
-			resultSet.close();
+			sample.stop();
 		} catch (SQLException e) {
 			System.out.println(e);
+			sample.fail();
 		}
 
 		return ID;
@@ -69,52 +218,219 @@ public final class SQLConnector {
 
 	/**
 	 * Read data from SQLite database.
-	 * @param readString SQL command string, formatted as "SELECT * FROM [tableName] WHERE [columnName] = [value]"
+	 * @param readString SQL command string without parameters, formatted as "SELECT * FROM [tableName]"
 	 * @param processor Consumer object for holding the ResultSet from the query after the SQL connection closes
 	 */
 	public static void read(String readString, Consumer<ResultSet> processor) {
-		try(
-				Connection connection = DriverManager.getConnection(SQLConnector.url);
-				Statement statement = connection.createStatement();
-				ResultSet resultSet = statement.executeQuery(readString);
-				) {
-			processor.accept(resultSet);
+		SQLConnector.read(readString, new Object[0], processor);
+	}
+
+	/**
+	 * Read data from SQLite database with a parameterized query. The statement is prepared once per connection and reused.
+	 * @param readString SQL command string, formatted as "SELECT * FROM [tableName] WHERE [columnName] = ?"
+	 * @param data Array of values for the parameters, see bind()
+	 * @param processor Consumer object for holding the ResultSet from the query after the SQL connection closes
+	 */
+	public static void read(String readString, Object[] data, Consumer<ResultSet> processor) {
+		Metrics.Sample sample = Metrics.start("sql.read");
+		try (PooledConnection pooled = SQLConnector.getConnection()) {
+			PreparedStatement statement = pooled.prepare(readString);
+			SQLConnector.bind(statement, data);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				processor.accept(resultSet);
+			}
+			sample.stop();
 		} catch (SQLException e) {
 			System.out.println(e);
+			sample.fail();
 		}
 	}
 
 	/**
-	 * Update data in SQLite database.
-	 * @param updateString SQL command string, formatted as "UPDATE [tableName] SET [columnName] = ?, WHERE [columnName] = [value]"
-	 * @param data Array of Strings of data to update, with the number of Strings matching the number of columns
+	 * Read data from SQLite database with a parameterized query that can be cancelled while it runs.
+	 * SQLite calls back every PROGRESS_INTERVAL virtual machine instructions, and interrupts the query once cancelled returns true.
+	 * The statement isn't taken from the statement cache, as an interrupted statement can't be used again. Cancelled queries are counted as failed in Metrics, but not printed.
+	 * @param readString SQL command string, formatted as "SELECT * FROM [tableName] WHERE [columnName] = ?"
+	 * @param data Array of values for the parameters, see bind()
+	 * @param processor Consumer object for holding the ResultSet from the query, reading it fails once the query is interrupted
+	 * @param cancelled Returns true once the results are no longer needed
+	 * @return True if the query ran to the end, false if it was cancelled or failed
 	 */
-	public static void update(String updateString, String[] data) {
-		try(
-				Connection connection = DriverManager.getConnection(SQLConnector.url);
-				PreparedStatement statement = connection.prepareStatement(updateString);
-			) {
-			for (int i = 0; i < data.length; i++) {
-				statement.setString(i + 1, data[i]);
+	public static boolean read(String readString, Object[] data, Consumer<ResultSet> processor, BooleanSupplier cancelled) {
+		Metrics.Sample sample = Metrics.start("sql.read");
+		try (PooledConnection pooled = SQLConnector.getConnection()) {
+			Connection connection = pooled.getConnection();
+			ProgressHandler.setHandler(connection, SQLConnector.PROGRESS_INTERVAL, new ProgressHandler() {
+				@Override
+				protected int progress() {
+					return cancelled.getAsBoolean() ? 1 : 0;
+				}
+			});
+			try (PreparedStatement statement = connection.prepareStatement(readString)) {
+				SQLConnector.bind(statement, data);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					processor.accept(resultSet);
+				}
+			} finally {
+				//The connection goes back to the pool without the handler
+				ProgressHandler.clearHandler(connection);
 			}
+			if (cancelled.getAsBoolean()) {
+				sample.fail();
+				return false;
+			}
+			sample.stop();
+			return true;
+		} catch (SQLException e) {
+			if (!cancelled.getAsBoolean()) {
+				System.out.println(e);
+			}
+			sample.fail();
+			return false;
+		}
+	}
+
+	/**
+	 * Update data in SQLite database.
+	 * @param updateString SQL command string, formatted as "UPDATE [tableName] SET [columnName] = ?, WHERE [columnName] = ?"
+	 * @param data Array of values to update, with the number of values matching the number of parameters, see bind()
+	 */
+	public static void update(String updateString, Object[] data) {
+		Metrics.Sample sample = Metrics.start("sql.update");
+		try (PooledConnection pooled = SQLConnector.getConnection()) {
+			PreparedStatement statement = pooled.prepare(updateString);
+			SQLConnector.bind(statement, data);
 			statement.executeUpdate();
+			sample.stop();
 		} catch (SQLException e) {
 			System.out.println(e);
+			sample.fail();
 		}
 	}
 
 	/**
-	 * Delete data in SQLite database.
-	 * @param deleteString SQL command string, formatted as "DELETE FROM [tableName] WHERE [columnName] = [value]"
+	 * Update many rows in SQLite database in one transaction, using one batched statement per update string.
+	 * Nothing is written if any of the updates fails.
+	 * @param batches Map of SQL command strings, formatted as in update(), to the data arrays to execute them with
+	 * @return True if the transaction was committed, false if nothing was written
 	 */
-	public static void delete(String deleteString) {
-		try(
-				Connection connection = DriverManager.getConnection(SQLConnector.url);
-				Statement statement = connection.createStatement();
-			) {
-			statement.executeUpdate(deleteString);
+	public static boolean updateBatch(Map<String, List<Object[]>> batches) {
+		Metrics.Sample sample = Metrics.start("sql.updateBatch");
+		try (PooledConnection pooled = SQLConnector.getConnection()) {
+			Connection connection = pooled.getConnection();
+			connection.setAutoCommit(false);
+
+			for (Map.Entry<String, List<Object[]>> batch : batches.entrySet()) {
+				PreparedStatement statement = pooled.prepare(batch.getKey());
+				for (Object[] data : batch.getValue()) {
+					SQLConnector.bind(statement, data);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+
+			connection.commit();
+			sample.stop();
+			return true;
 		} catch (SQLException e) {
 			System.out.println(e);
+			sample.fail();
+			return false;
 		}
 	}
+
+	/**
+	 * Delete data in SQLite database with a parameterized statement. The statement is prepared once per connection and reused.
+	 * @param deleteString SQL command string, formatted as "DELETE FROM [tableName] WHERE [columnName] = ?"
+	 * @param data Values for the parameters, see bind()
+	 */
+	public static void delete(String deleteString, Object... data) {
+		Metrics.Sample sample = Metrics.start("sql.delete");
+		try (PooledConnection pooled = SQLConnector.getConnection()) {
+			PreparedStatement statement = pooled.prepare(deleteString);
+			SQLConnector.bind(statement, data);
+			statement.executeUpdate();
+			sample.stop();
+		} catch (SQLException e) {
+			System.out.println(e);
+			sample.fail();
+		}
+	}
+
+	/**
+	 * Bind values to the parameters of a statement, using compact column types.
+	 * Booleans are stored as 0 or 1, LocalDates as epoch day and LocalTimes as minute of day. Other values are bound as their own type.
+	 * @param statement Statement with a parameter for each value
+	 * @param data Values to bind, in parameter order; may contain null
+	 * @throws SQLException If a value can't be bound
+	 */
+	public static void bind(PreparedStatement statement, Object[] data) throws SQLException {
+		for (int i = 0; i < data.length; i++) {
+			Object value = data[i];
+			if (value == null) {
+				statement.setNull(i + 1, Types.NULL);
+			} else if (value instanceof Boolean) {
+				statement.setInt(i + 1, SQLConnector.toSQL((Boolean)value));
+			} else if (value instanceof LocalDate) {
+				statement.setLong(i + 1, SQLConnector.toSQL((LocalDate)value));
+			} else if (value instanceof LocalTime) {
+				statement.setInt(i + 1, SQLConnector.toSQL((LocalTime)value));
+			} else if (value instanceof Integer) {
+				statement.setInt(i + 1, (Integer)value);
+			} else if (value instanceof Long) {
+				statement.setLong(i + 1, (Long)value);
+			} else if (value instanceof String) {
+				statement.setString(i + 1, (String)value);
+			} else {
+				statement.setObject(i + 1, value);
+			}
+		}
+	}
+
+	public static int toSQL(Boolean value) {
+		return value ? 1 : 0;
+	}
+
+	public static long toSQL(LocalDate date) {
+		return date.toEpochDay();
+	}
+
+	public static int toSQL(LocalTime time) {
+		return time.getHour() * 60 + time.getMinute();
+	}
+
+	/**
+	 * Read a flag stored as 0 or 1.
+	 * @param resultSet ResultSet positioned on a row
+	 * @param column Column name
+	 * @return True if the column is not 0
+	 * @throws SQLException If the column can't be read
+	 */
+	public static Boolean getBoolean(ResultSet resultSet, String column) throws SQLException {
+		return resultSet.getInt(column) != 0;
+	}
+
+	/**
+	 * Read a date stored as epoch day.
+	 * @param resultSet ResultSet positioned on a row
+	 * @param column Column name
+	 * @return LocalDate, or null if the column is null
+	 * @throws SQLException If the column can't be read
+	 */
+	public static LocalDate getDate(ResultSet resultSet, String column) throws SQLException {
+		long epochDay = resultSet.getLong(column);
+		return resultSet.wasNull() ? null : LocalDate.ofEpochDay(epochDay);
+	}
+
+	/**
+	 * Read a time stored as minute of day.
+	 * @param resultSet ResultSet positioned on a row
+	 * @param column Column name
+	 * @return LocalTime, or null if the column is null
+	 * @throws SQLException If the column can't be read
+	 */
+	public static LocalTime getTime(ResultSet resultSet, String column) throws SQLException {
+		int minuteOfDay = resultSet.getInt(column);
+		return resultSet.wasNull() ? null : LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+	}
 }
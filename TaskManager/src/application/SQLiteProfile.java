@@ -0,0 +1,139 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * SQLite settings applied to every pooled connection: journal mode, synchronous level, page cache, memory mapping, temp store and busy timeout.
+ * The default profile favors low-latency interactive edits: WAL journaling with synchronous NORMAL never corrupts the database,
+ * at worst the last transactions before a power failure are lost. WAL also lets readers run while a write is in progress.
+ */
+public class SQLiteProfile {
+
+	public static enum JournalMode {
+		DELETE, TRUNCATE, PERSIST, MEMORY, WAL, OFF
+	}
+
+	public static enum Synchronous {
+		OFF, NORMAL, FULL, EXTRA
+	}
+
+	public static enum TempStore {
+		DEFAULT, FILE, MEMORY
+	}
+
+	private JournalMode journalMode = JournalMode.WAL;
+	private Synchronous synchronous = Synchronous.NORMAL;
+	//Page cache size in KiB
+	private int cacheSize = 8192;
+	//Bytes of the database file accessed through memory mapping, 0 to switch off
+	private long mmapSize = 64L * 1024 * 1024;
+	private TempStore tempStore = TempStore.MEMORY;
+	//Milliseconds to wait for a lock held by another connection
+	private int busyTimeout = 5000;
+	//Milliseconds between background WAL checkpoints, 0 to leave checkpoints to SQLite
+	private long checkpointInterval = 30000;
+
+	/**
+	 * Creates the default profile for interactive use.
+	 */
+	public SQLiteProfile() {
+	}
+
+	/**
+	 * Creates a profile with SQLite's own defaults: rollback journal, synchronous FULL and no background checkpoints.
+	 * @return SQLiteProfile matching an unconfigured SQLite connection
+	 */
+	public static SQLiteProfile sqliteDefaults() {
+		SQLiteProfile profile = new SQLiteProfile();
+		profile.journalMode = JournalMode.DELETE;
+		profile.synchronous = Synchronous.FULL;
+		profile.cacheSize = 2000;
+		profile.mmapSize = 0;
+		profile.tempStore = TempStore.DEFAULT;
+		profile.busyTimeout = 3000;
+		profile.checkpointInterval = 0;
+		return profile;
+	}
+
+	/**
+	 * Apply the settings of this profile to a connection.
+	 * @param connection New connection to the database
+	 * @throws SQLException If a setting can't be applied
+	 */
+	public void apply(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			//Busy timeout first, switching journal mode needs a lock
+			statement.execute("PRAGMA busy_timeout = " + this.busyTimeout);
+			statement.execute("PRAGMA journal_mode = " + this.journalMode);
+			statement.execute("PRAGMA synchronous = " + this.synchronous);
+			//Negative cache size is in KiB instead of pages
+			statement.execute("PRAGMA cache_size = " + -this.cacheSize);
+			statement.execute("PRAGMA mmap_size = " + this.mmapSize);
+			statement.execute("PRAGMA temp_store = " + this.tempStore);
+		}
+	}
+
+	public JournalMode getJournalMode() {
+		return this.journalMode;
+	}
+
+	public void setJournalMode(JournalMode journalMode) {
+		this.journalMode = journalMode;
+	}
+
+	public Synchronous getSynchronous() {
+		return this.synchronous;
+	}
+
+	public void setSynchronous(Synchronous synchronous) {
+		this.synchronous = synchronous;
+	}
+
+	public int getCacheSize() {
+		return this.cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public long getMmapSize() {
+		return this.mmapSize;
+	}
+
+	public void setMmapSize(long mmapSize) {
+		this.mmapSize = mmapSize;
+	}
+
+	public TempStore getTempStore() {
+		return this.tempStore;
+	}
+
+	public void setTempStore(TempStore tempStore) {
+		this.tempStore = tempStore;
+	}
+
+	public int getBusyTimeout() {
+		return this.busyTimeout;
+	}
+
+	public void setBusyTimeout(int busyTimeout) {
+		this.busyTimeout = busyTimeout;
+	}
+
+	public long getCheckpointInterval() {
+		return this.checkpointInterval;
+	}
+
+	public void setCheckpointInterval(long checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	@Override
+	public String toString() {
+		return "journal " + this.journalMode + ", synchronous " + this.synchronous + ", cache " + this.cacheSize + " KiB, mmap " + this.mmapSize / 1024 / 1024 + " MiB, temp store " + this.tempStore
+				+ ", busy timeout " + this.busyTimeout + " ms, checkpoint every " + this.checkpointInterval + " ms";
+	}
+}
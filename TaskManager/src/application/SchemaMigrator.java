@@ -0,0 +1,227 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+import application.ConnectionPool.PooledConnection;
+
+/**
+ * Brings the SQLite database schema up to date at startup.
+ * The schema version is stored in PRAGMA user_version. Migrations newer than the stored version are applied in order, each in its own transaction.
+ * Databases created before versioning have version 0; the first migration only creates tables that don't exist yet, so they are upgraded in place.
+ */
+public final class SchemaMigrator {
+
+	//Ordered list of migrations, the version of a migration is its position in the list plus one
+	private static final ArrayList<Migration> migrations = new ArrayList<Migration>();
+
+	static {
+		//Version 1: task and subtask tables
+		SchemaMigrator.migrations.add(new Migration("Create task tables",
+				"CREATE TABLE IF NOT EXISTS tasks (" +
+				"	ID INTEGER PRIMARY KEY," +
+				"	Name VARCHAR(100) NOT NULL," +
+				"	Date DATE NOT NULL," +
+				"	Time TEXT," +
+				"	Completed INTYINT(1) NOT NULL," +
+				"	Expanded INTYINT(1) NOT NULL," +
+				"	Editmode INTYINT(1) NOT NULL" +
+				");",
+				"CREATE TABLE IF NOT EXISTS subtasks (" +
+				"	ID INTEGER PRIMARY KEY," +
+				"	Name VARCHAR(100) NOT NULL," +
+				"	MainTaskID INT NOT NULL," +
+				"	Completed INTYINT(1) NOT NULL" +
+				");"));
+
+		//Version 2: indexes for looking up tasks per date and subtasks per main task
+		SchemaMigrator.migrations.add(new Migration("Index task date and subtask main task",
+				"CREATE INDEX IF NOT EXISTS TasksDateIndex ON tasks (Date);",
+				"CREATE INDEX IF NOT EXISTS SubtasksMainTaskIndex ON subtasks (MainTaskID);"));
+
+		//Version 3: foreign key from subtasks to tasks, rebuilding the table and dropping orphaned subtasks
+		SchemaMigrator.migrations.add(new Migration("Add subtask foreign key",
+				"CREATE TABLE subtasks_new (" +
+				"	ID INTEGER PRIMARY KEY," +
+				"	Name VARCHAR(100) NOT NULL," +
+				"	MainTaskID INTEGER NOT NULL REFERENCES tasks (ID) ON DELETE CASCADE," +
+				"	Completed INTYINT(1) NOT NULL" +
+				");",
+				"INSERT INTO subtasks_new (ID, Name, MainTaskID, Completed) SELECT ID, Name, MainTaskID, Completed FROM subtasks WHERE MainTaskID IN (SELECT ID FROM tasks);",
+				"DROP TABLE subtasks;",
+				"ALTER TABLE subtasks_new RENAME TO subtasks;",
+				"CREATE INDEX SubtasksMainTaskIndex ON subtasks (MainTaskID);"));
+
+		//Version 4: compact column types, flags as 0 or 1, Date as epoch day and Time as minute of day, converted from text
+		SchemaMigrator.migrations.add(new Migration("Store dates, times and flags as integers",
+				"CREATE TABLE tasks_new (" +
+				"	ID INTEGER PRIMARY KEY," +
+				"	Name TEXT NOT NULL," +
+				"	Date INTEGER NOT NULL," +
+				"	Time INTEGER," +
+				"	Completed INTEGER NOT NULL," +
+				"	Expanded INTEGER NOT NULL," +
+				"	Editmode INTEGER NOT NULL" +
+				");",
+				"INSERT INTO tasks_new (ID, Name, Date, Time, Completed, Expanded, Editmode) SELECT ID, Name," +
+				"	CAST(julianday(Date) - 2440587.5 AS INTEGER)," +
+				"	CASE WHEN Time IS NULL OR Time = '' THEN NULL ELSE CAST(substr(Time, 1, 2) AS INTEGER) * 60 + CAST(substr(Time, 4, 2) AS INTEGER) END," +
+				"	Completed IN ('true', '1', 1), Expanded IN ('true', '1', 1), Editmode IN ('true', '1', 1)" +
+				"	FROM tasks;",
+				"DROP TABLE tasks;",
+				"ALTER TABLE tasks_new RENAME TO tasks;",
+				"CREATE INDEX TasksDateIndex ON tasks (Date);",
+				"CREATE TABLE subtasks_new (" +
+				"	ID INTEGER PRIMARY KEY," +
+				"	Name TEXT NOT NULL," +
+				"	MainTaskID INTEGER NOT NULL REFERENCES tasks (ID) ON DELETE CASCADE," +
+				"	Completed INTEGER NOT NULL" +
+				");",
+				"INSERT INTO subtasks_new (ID, Name, MainTaskID, Completed) SELECT ID, Name, MainTaskID, Completed IN ('true', '1', 1) FROM subtasks;",
+				"DROP TABLE subtasks;",
+				"ALTER TABLE subtasks_new RENAME TO subtasks;",
+				"CREATE INDEX SubtasksMainTaskIndex ON subtasks (MainTaskID);"));
+
+		//Version 5: move UI state out of the tasks table into its own table, keeping only tasks with a flag set
+		SchemaMigrator.migrations.add(new Migration("Move view state to its own table",
+				"CREATE TABLE viewstate (" +
+				"	TaskID INTEGER PRIMARY KEY REFERENCES tasks (ID) ON DELETE CASCADE," +
+				"	Expanded INTEGER NOT NULL," +
+				"	Editmode INTEGER NOT NULL" +
+				");",
+				"INSERT INTO viewstate (TaskID, Expanded, Editmode) SELECT ID, Expanded, Editmode FROM tasks WHERE Expanded OR Editmode;",
+				"ALTER TABLE tasks DROP COLUMN Expanded;",
+				"ALTER TABLE tasks DROP COLUMN Editmode;"));
+
+		//Version 6: full-text index of task names and their subtask names, one row per task with the task ID as rowid, kept up to date by triggers
+		//Updates write all columns of a task, so the update triggers only run when a name or parent actually changed
+		//Only prefix queries are used, so token positions are left out (detail = column), halving reads of common words
+		SchemaMigrator.migrations.add(new Migration("Index task and subtask names for search",
+				"CREATE VIRTUAL TABLE task_search USING fts5 (Name, SubTaskNames, prefix = '1 2 3', detail = column);",
+				"INSERT INTO task_search (rowid, Name, SubTaskNames) SELECT ID, Name," +
+				"	COALESCE((SELECT group_concat(Name, ' ') FROM subtasks WHERE MainTaskID = tasks.ID), '')" +
+				"	FROM tasks;",
+				"CREATE TRIGGER TasksSearchInsert AFTER INSERT ON tasks BEGIN" +
+				"	INSERT INTO task_search (rowid, Name, SubTaskNames) VALUES (new.ID, new.Name, '');" +
+				"	END;",
+				"CREATE TRIGGER TasksSearchUpdate AFTER UPDATE OF Name ON tasks WHEN old.Name IS NOT new.Name BEGIN" +
+				"	UPDATE task_search SET Name = new.Name WHERE rowid = new.ID;" +
+				"	END;",
+				"CREATE TRIGGER TasksSearchDelete AFTER DELETE ON tasks BEGIN" +
+				"	DELETE FROM task_search WHERE rowid = old.ID;" +
+				"	END;",
+				"CREATE TRIGGER SubtasksSearchInsert AFTER INSERT ON subtasks BEGIN" +
+				"	UPDATE task_search SET SubTaskNames = (SELECT group_concat(Name, ' ') FROM subtasks WHERE MainTaskID = new.MainTaskID) WHERE rowid = new.MainTaskID;" +
+				"	END;",
+				"CREATE TRIGGER SubtasksSearchUpdate AFTER UPDATE OF Name, MainTaskID ON subtasks WHEN old.Name IS NOT new.Name OR old.MainTaskID IS NOT new.MainTaskID BEGIN" +
+				"	UPDATE task_search SET SubTaskNames = COALESCE((SELECT group_concat(Name, ' ') FROM subtasks WHERE MainTaskID = old.MainTaskID), '') WHERE rowid = old.MainTaskID;" +
+				"	UPDATE task_search SET SubTaskNames = (SELECT group_concat(Name, ' ') FROM subtasks WHERE MainTaskID = new.MainTaskID) WHERE rowid = new.MainTaskID;" +
+				"	END;",
+				"CREATE TRIGGER SubtasksSearchDelete AFTER DELETE ON subtasks BEGIN" +
+				"	UPDATE task_search SET SubTaskNames = COALESCE((SELECT group_concat(Name, ' ') FROM subtasks WHERE MainTaskID = old.MainTaskID), '') WHERE rowid = old.MainTaskID;" +
+				"	END;"));
+	}
+
+	/**
+	 * @return Schema version this version of the application expects
+	 */
+	public static int getLatestVersion() {
+		return SchemaMigrator.migrations.size();
+	}
+
+	/**
+	 * Apply all migrations newer than the schema version of the database.
+	 * Foreign keys are switched off while migrating, so tables can be rebuilt, and checked before each migration is committed.
+	 * A migration that fails is rolled back and later migrations are skipped.
+	 * @return Schema version of the database after migrating
+	 */
+	public static int migrate() {
+		int version = 0;
+
+		try (PooledConnection pooled = SQLConnector.getConnection()) {
+			Connection connection = pooled.getConnection();
+			version = SchemaMigrator.getVersion(connection);
+
+			if (version > SchemaMigrator.getLatestVersion()) {
+				System.out.println("Database schema version " + version + " is newer than supported version " + SchemaMigrator.getLatestVersion());
+				return version;
+			}
+			if (version == SchemaMigrator.getLatestVersion()) {
+				return version;
+			}
+
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("PRAGMA foreign_keys = OFF");
+				try {
+					while (version < SchemaMigrator.getLatestVersion()) {
+						SchemaMigrator.apply(connection, version + 1, SchemaMigrator.migrations.get(version));
+						version++;
+					}
+				} finally {
+					statement.execute("PRAGMA foreign_keys = ON");
+				}
+			}
+		} catch (SQLException e) {
+			System.out.println(e);
+		}
+
+		return version;
+	}
+
+	/**
+	 * Apply one migration in a transaction and set the schema version.
+	 * @param connection Connection to the database
+	 * @param version Schema version after the migration
+	 * @param migration Migration to apply
+	 * @throws SQLException If a statement fails or the migration breaks a foreign key
+	 */
+	private static void apply(Connection connection, int version, Migration migration) throws SQLException {
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement()) {
+			for (String sqlString : migration.sqlStrings) {
+				statement.execute(sqlString);
+			}
+
+			//Make sure rebuilt tables still satisfy their foreign keys
+			try (ResultSet resultSet = statement.executeQuery("PRAGMA foreign_key_check")) {
+				if (resultSet.next()) {
+					throw new SQLException("Migration to version " + version + " (" + migration.description + ") breaks foreign key in table " + resultSet.getString(1));
+				}
+			}
+
+			statement.execute("PRAGMA user_version = " + version);
+			connection.commit();
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	private static int getVersion(Connection connection) throws SQLException {
+		try (
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("PRAGMA user_version");
+			) {
+			return resultSet.next() ? resultSet.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Step from one schema version to the next: a description and the SQL statements to run.
+	 */
+	private static class Migration {
+
+		final String description;
+		final String[] sqlStrings;
+
+		Migration(String description, String... sqlStrings) {
+			this.description = description;
+			this.sqlStrings = sqlStrings;
+		}
+	}
+}
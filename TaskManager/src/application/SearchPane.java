@@ -0,0 +1,162 @@
+package application;
+
+import java.time.format.DateTimeFormatter;
+
+import javafx.animation.PauseTransition;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+
+/**
+ * Extends VBox. Searches tasks as the user types and lists the results a page at a time. Opening a result shows its day in the CalendarPane.
+ * Typing waits for a short pause before searching, and results of searches overtaken by newer typing are dropped.
+ */
+public class SearchPane extends VBox {
+
+	//Milliseconds of no typing before searching
+	public static final double TYPING_DELAY = 150;
+
+	private TextField searchField = new TextField();
+	private Label statusLabel = new Label();
+	private ListView<TaskSearch.Result> resultList = new ListView<TaskSearch.Result>();
+	private Button moreButton = new Button("More results");
+
+	//Counts searches, so results of an older search arriving late are ignored
+	private int searchCount = 0;
+
+	public SearchPane() {
+		this.setPadding(new Insets(3));
+		this.setSpacing(3);
+		this.setStyle("-fx-background-color: white;");
+
+		//Search field, searches after a pause in typing
+		this.searchField.setPromptText("Search tasks");
+		PauseTransition typingPause = new PauseTransition(Duration.millis(SearchPane.TYPING_DELAY));
+		typingPause.setOnFinished(e -> {
+			this.search(false);
+		});
+		this.searchField.textProperty().addListener((observable, oldText, newText) -> {
+			typingPause.playFromStart();
+		});
+		this.searchField.setOnAction(e -> {
+			typingPause.stop();
+			this.search(false);
+		});
+
+		//Results, opened with a click on a result or enter, clicks on the scroll bar or below the results are ignored
+		this.resultList.setCellFactory(listView -> {
+			ResultCell cell = new ResultCell();
+			cell.setOnMouseClicked(e -> {
+				if (!cell.isEmpty()) {
+					this.open(cell.getItem());
+				}
+			});
+			return cell;
+		});
+		VBox.setVgrow(this.resultList, Priority.ALWAYS);
+		this.resultList.setOnKeyPressed(e -> {
+			if (e.getCode() == KeyCode.ENTER) {
+				this.open(this.resultList.getSelectionModel().getSelectedItem());
+			}
+		});
+
+		//Next page
+		this.moreButton.setMaxWidth(Double.MAX_VALUE);
+		this.moreButton.setVisible(false);
+		this.moreButton.setManaged(false);
+		this.moreButton.setOnAction(e -> {
+			this.search(true);
+		});
+
+		this.getChildren().addAll(this.searchField, this.statusLabel, this.resultList, this.moreButton);
+	}
+
+	/**
+	 * Searches for the text in the search field.
+	 * @param nextPage True to add the page after the shown results, false to replace them with the first page
+	 */
+	private void search(boolean nextPage) {
+		int search = ++this.searchCount;
+		int beforeID = 0;
+		if (nextPage && !this.resultList.getItems().isEmpty()) {
+			beforeID = this.resultList.getItems().get(this.resultList.getItems().size() - 1).iD;
+		}
+		this.statusLabel.setText("Searching...");
+
+		TaskSearch.searchAsync(this.searchField.getText(), beforeID).thenAcceptAsync(page -> {
+			//Skip results of a search that was overtaken by a newer one
+			if (page == null || search != this.searchCount) {
+				return;
+			}
+			if (nextPage) {
+				this.resultList.getItems().addAll(page.results);
+			} else {
+				this.resultList.getItems().setAll(page.results);
+				this.resultList.scrollTo(0);
+			}
+			int resultCount = this.resultList.getItems().size();
+			this.statusLabel.setText(resultCount == 0 ? "No tasks found" : resultCount + (page.more ? "+" : "") + " tasks found");
+			this.moreButton.setVisible(page.more);
+			this.moreButton.setManaged(page.more);
+		}, AsyncSQLConnector.FX_THREAD).exceptionally(e -> {
+			System.out.println(e);
+			return null;
+		});
+	}
+
+	/**
+	 * Shows the day of a result in the CalendarPane.
+	 * @param result Result to open, nothing happens if null
+	 */
+	private void open(TaskSearch.Result result) {
+		if (result == null) {
+			return;
+		}
+		Main.calendarPane.showDate(result.date);
+		Main.mainMenuBar.agendaButton.fire();
+	}
+
+	/**
+	 * Shows a result as its date and name, struck through if completed.
+	 */
+	private static class ResultCell extends ListCell<TaskSearch.Result> {
+
+		private HBox resultBox = new HBox(10);
+		private Label dateLabel = new Label();
+		private Label nameLabel = new Label();
+
+		ResultCell() {
+			this.resultBox.setAlignment(Pos.CENTER_LEFT);
+			this.dateLabel.setMinWidth(70);
+			this.resultBox.getChildren().addAll(this.dateLabel, this.nameLabel);
+			this.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+		}
+
+		@Override
+		protected void updateItem(TaskSearch.Result result, boolean empty) {
+			super.updateItem(result, empty);
+
+			if (empty || result == null) {
+				this.setGraphic(null);
+				return;
+			}
+			this.dateLabel.setText(result.date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")));
+			this.nameLabel.setText(result.name);
+			this.nameLabel.getStyleClass().remove("labelStrikethrough");
+			if (result.completed) {
+				this.nameLabel.getStyleClass().add("labelStrikethrough");
+			}
+			this.setGraphic(this.resultBox);
+		}
+	}
+}
@@ -3,7 +3,7 @@ package application;
 /**
  * Extends Task. Class describing a subtask belonging to a main task.
  * Contains methods for updating and deleting its entry in the SQLite database.
- * Holds a reference to a TaskPane for display of its variables.
+ * Displayed by a TaskPane in the MainTaskPane of its MainTask.
  */
 public class SubTask extends Task implements Comparable<SubTask> {
 
@@ -18,7 +18,6 @@ public class SubTask extends Task implements Comparable<SubTask> {
 		this.iD = 0;
 		this.name = "";
 		this.completed = false;
-		this.taskPane = new TaskPane(this);
 	}
 
 	/**
@@ -33,37 +32,49 @@ public class SubTask extends Task implements Comparable<SubTask> {
 		this.iD = iD;
 		this.name = name;
 		this.completed = completed;
-		this.taskPane = new TaskPane(this);
 	}
 
 	/**
-	 * Update SQLite database entry of this MainTask with new values
+	 * Update SQLite database entry of this SubTask with new values.
+	 * New SubTasks are inserted right away on the writer thread, changes to existing SubTasks are written at the next UnitOfWork flush.
 	 */
 	public void updateSQL() {
-
-		//Get data to insert
-		String[] data = new String[3];
-		data[0] = this.getName();
-		data[1] = String.valueOf(this.mainTask.getID());
-		data[2] = this.isCompleted().toString();
-		
 		//If new task, add to database
 		if (this.getID() == 0) {
+			Object[] data = new Object[] {this.getName(), null, this.isCompleted()};
 			String insertString = "INSERT INTO subtasks (Name, MainTaskID, Completed) VALUES (?,?,?)";
-			this.setID(SQLConnector.insert(insertString, data));
+			//MainTask ID is read on the writer thread, after the insert of a new MainTask has finished
+			this.insertSQL(insertString, () -> {
+				data[1] = this.mainTask.getID();
+				return data;
+			});
 			
-		//If already exists, update records
+		//If already exists, update records at next flush
 		} else {
-			String updateString = "UPDATE subtasks SET Name = ?, MainTaskID = ?, Completed = ? WHERE ID = " + this.getID();
-			SQLConnector.update(updateString, data);
+			UnitOfWork.register(this);
 		}
 	}
 
+	@Override
+	String getUpdateString() {
+		//SubTasks don't move between MainTasks, so MainTaskID is only written on insert
+		return "UPDATE subtasks SET Name = ?, Completed = ? WHERE ID = ?";
+	}
+
+	@Override
+	Object[] getUpdateData() {
+		return new Object[] {this.getName(), this.isCompleted(), this.getID()};
+	}
+
 	/**
-	 * Delete SQLite database entry of this MainTask and all its SubTasks
+	 * Delete SQLite database entry of this SubTask
 	 */
 	public void deleteSQL() {
-		SQLConnector.delete("DELETE FROM subtasks WHERE ID = '" + this.getID() + "'");
+		UnitOfWork.discard(this);
+		AsyncSQLConnector.submitWrite(() -> {
+			SQLConnector.delete("DELETE FROM subtasks WHERE ID = ?", this.getID());
+			return null;
+		});
 	}
 	
 	@Override
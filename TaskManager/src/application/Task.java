@@ -1,15 +1,27 @@
 package application;
 
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import application.TaskListener.Property;
+
 /**
  * Abstract class describing a task in the agenda. Extended by SubTask and MainTask.
+ * Doesn't depend on the JavaFX toolkit: TaskPanes showing a Task follow it as TaskListeners, and are reused for other Tasks as lists scroll.
  */
 public abstract class Task {
 	
-	protected int iD;
+	//Set on the database writer thread when a new task is inserted
+	protected volatile int iD;
 	protected String name;
 	protected Boolean completed;
 	
-	TaskPane taskPane;
+	//Created when the first listener is added
+	private ArrayList<TaskListener> listeners;
+
+	//Insert of a new task that hasn't finished yet
+	protected CompletableFuture<Integer> pendingInsert;
 
 	public int getID() {
 		return iD;
@@ -26,7 +38,7 @@ public abstract class Task {
 	public void setName(String name) {
 		this.name = name;
 		this.updateSQL();
-		this.taskPane.setName(name);
+		this.fireChanged(Property.NAME);
 	}
 
 	public Boolean isCompleted() {
@@ -36,10 +48,62 @@ public abstract class Task {
 	public void setCompleted(boolean completed) {
 		this.completed = completed;
 		this.updateSQL();
-		this.taskPane.setCompleted(completed);
+		this.fireChanged(Property.COMPLETED);
+	}
+
+	public void addListener(TaskListener listener) {
+		if (this.listeners == null) {
+			this.listeners = new ArrayList<TaskListener>(1);
+		}
+		this.listeners.add(listener);
+	}
+
+	public void removeListener(TaskListener listener) {
+		if (this.listeners != null) {
+			this.listeners.remove(listener);
+		}
+	}
+
+	/**
+	 * Tell listeners a property of this Task has changed.
+	 * @param property Changed property
+	 */
+	protected void fireChanged(Property property) {
+		if (this.listeners == null) {
+			return;
+		}
+		for (TaskListener listener : new ArrayList<TaskListener>(this.listeners)) {
+			listener.taskChanged(this, property);
+		}
 	}
 	
 	public abstract void updateSQL();
+
+	/**
+	 * Insert a new database entry for this Task on the database writer thread. The generated ID is filled in when the insert finishes.
+	 * Changes made while the insert is pending are registered with UnitOfWork, which writes them after the insert.
+	 * @param insertString SQL command string for the insert
+	 * @param data Supplies the values to insert; runs on the writer thread, so it should only read IDs of other tasks from this Task
+	 */
+	protected void insertSQL(String insertString, Supplier<Object[]> data) {
+		if (this.pendingInsert == null) {
+			this.pendingInsert = AsyncSQLConnector.submitWrite(() -> SQLConnector.insert(insertString, data.get()));
+			//Runs on the writer thread before the next write, so later writes of this task see the ID
+			this.pendingInsert.thenAccept(this::setID);
+		} else {
+			UnitOfWork.register(this);
+		}
+	}
+
+	/**
+	 * @return SQL command string updating the database entry of this Task, with the ID as the last parameter
+	 */
+	abstract String getUpdateString();
+
+	/**
+	 * @return Current values of this Task matching the parameters of getUpdateString(), ending with the ID, which is filled in again when written
+	 */
+	abstract Object[] getUpdateData();
 	
 	public abstract void deleteSQL();
 
@@ -0,0 +1,22 @@
+package application;
+
+/**
+ * Listener for changes to a Task. Lets views such as TaskPanes follow a Task without the Task knowing about them.
+ * Called on the thread that changed the Task, the JavaFX application thread for changes made through the UI.
+ */
+public interface TaskListener {
+
+	/**
+	 * Properties of a Task that listeners are told about.
+	 */
+	public static enum Property {
+		NAME, COMPLETED, TIME, EXPANDED, EDIT_MODE
+	}
+
+	/**
+	 * Called after a property of a Task has changed.
+	 * @param task Task that changed
+	 * @param property Property that changed, read its new value from the Task
+	 */
+	void taskChanged(Task task, Property property);
+}
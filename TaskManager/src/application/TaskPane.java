@@ -14,9 +14,9 @@ import javafx.scene.layout.VBox;
 
 /**
  * Extends VBox. Belongs to a Task. Displays Task name and completion and allows it to be edited and deleted.
- * TaskPanes of SubTasks are grouped on the UI under the MainTaskPane of the MainTask.
+ * Listens to its Task to show changes. TaskPanes of SubTasks are grouped on the UI under the MainTaskPane of the MainTask.
  */
-public class TaskPane extends VBox {
+public class TaskPane extends VBox implements TaskListener {
 
 	protected Task task;
 	protected Boolean editMode = false;
@@ -62,7 +62,8 @@ public class TaskPane extends VBox {
 
 		//Complete checkbox
 		this.completeCheckBox.setOnAction(e -> {
-			task.setCompleted(!task.isCompleted());
+			this.task.setCompleted(!this.task.isCompleted());
+			UnitOfWork.flush();
 			e.consume();
 		});
 		
@@ -73,7 +74,7 @@ public class TaskPane extends VBox {
 		this.deleteButton.setOnAction(e -> {
 			this.delete();
 		});
-		Image cancelImage = new Image(getClass().getResourceAsStream("ButtonCancel.png"));
+		Image cancelImage = IconCache.get(this.getDeleteIconName());
 		ImageView cancelImageView = new ImageView(cancelImage);
 		cancelImageView.fitHeightProperty().bind(this.deleteButton.heightProperty());
 		cancelImageView.fitWidthProperty().bind(this.deleteButton.widthProperty());
@@ -83,13 +84,54 @@ public class TaskPane extends VBox {
 		
 		this.taskBox.getChildren().addAll(this.completeCheckBox, this.taskNameLabel, this.taskNameField, this.deleteButton);
 		
-		//Set name, completed
-		this.setName(task.getName());
+		//Set name, completed, a MainTaskPane does this once its own elements exist
 		if (!(this instanceof MainTaskPane)) {
+			this.setTask(task);
+		}
+	}
+
+	/**
+	 * Shows another Task in this TaskPane, so panes can be reused instead of creating one for every Task.
+	 * @param task Task to show
+	 */
+	public void setTask(Task task) {
+		this.release();
+		this.task = task;
+
+		//Follow changes to the task
+		task.addListener(this);
+		this.setName(task.getName());
+		this.setCompleted(task.isCompleted());
+	}
+
+	/**
+	 * Stops following changes to the Task, when this TaskPane is no longer shown.
+	 */
+	public void release() {
+		this.task.removeListener(this);
+	}
+
+	@Override
+	public void taskChanged(Task task, Property property) {
+		switch (property) {
+		case NAME:
+			this.setName(task.getName());
+			break;
+		case COMPLETED:
 			this.setCompleted(task.isCompleted());
+			break;
+		default:
+			break;
 		}
 	}
 	
+	/**
+	 * @return File name of the delete button icon, called from the constructor
+	 */
+	protected String getDeleteIconName() {
+		return "ButtonCancel.png";
+	}
+
 	public void setName(String name) {
 		this.taskNameLabel.setText(name);
 		this.taskNameField.setText(name);
@@ -111,15 +153,17 @@ public class TaskPane extends VBox {
 	
 	
 	/**
-	 * Sets TaskPane as invisible and deletes Task from SQLite database.
+	 * Deletes Task from SQLite database and removes it from its list, which takes this TaskPane out of view.
 	 */
 	public void delete() {
-		this.task.deleteSQL();
-		this.setVisible(false);
-		this.setManaged(false);
+		//Removing the task can point this pane at another task
+		Task task = this.task;
+		task.deleteSQL();
 		
-		if (this.task instanceof SubTask) {
-			((SubTask)this.task).getMainTask().removeFromSubTaskList((SubTask)this.task);
+		if (task instanceof SubTask) {
+			((SubTask)task).getMainTask().removeFromSubTaskList((SubTask)task);
+		} else if (task instanceof MainTask) {
+			((MainTask)task).getPlanDate().removeTask((MainTask)task);
 		}
 	}
 
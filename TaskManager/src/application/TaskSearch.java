@@ -0,0 +1,190 @@
+package application;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Full-text search of MainTasks by their name and the names of their SubTasks, using the task_search FTS5 index kept up to date by triggers.
+ * Every word typed is matched as a prefix, so results follow the text as it's typed. Results are newest task first, read a page at a time;
+ * the index is read in that order and stops after a page, so queries stay fast however many tasks match.
+ * Searches run on a reader thread. When a newer search comes in, an older one that hasn't started yet is skipped and one that is running is interrupted.
+ */
+public final class TaskSearch {
+
+	//Number of results per page
+	public static final int PAGE_SIZE = 25;
+
+	//Tasks matching all words, newest first, before a task ID for the next page
+	private static final String SEARCH_QUERY =
+			"SELECT tasks.ID, tasks.Name, tasks.Date, tasks.Completed FROM task_search CROSS JOIN tasks ON tasks.ID = task_search.rowid" +
+			"	WHERE task_search MATCH ? AND task_search.rowid < ?" +
+			"	ORDER BY task_search.rowid DESC LIMIT ?";
+
+	//Counts calls to searchAsync, so searches that were overtaken are skipped or interrupted
+	private static long searchCount = 0;
+
+	/**
+	 * Searches on a reader thread, after pending writes are finished. Call on the JavaFX application thread.
+	 * @param text Text typed by the user
+	 * @param beforeID 0 for the first page, or the ID of the last result of the previous page
+	 * @return CompletableFuture completed with a page of results, or with null if a newer search started first
+	 */
+	public static CompletableFuture<Page> searchAsync(String text, int beforeID) {
+		long search;
+		synchronized (TaskSearch.class) {
+			search = ++TaskSearch.searchCount;
+		}
+
+		//Write pending changes first so they can be found
+		UnitOfWork.flush();
+		return AsyncSQLConnector.submitRead(() -> TaskSearch.search(text, beforeID, () -> !TaskSearch.isCurrent(search)));
+	}
+
+	/**
+	 * Searches on the calling thread.
+	 * @param text Text typed by the user
+	 * @param beforeID 0 for the first page, or the ID of the last result of the previous page
+	 * @return Page of results, empty if the text has no words
+	 */
+	public static Page search(String text, int beforeID) {
+		return TaskSearch.search(text, beforeID, () -> false);
+	}
+
+	/**
+	 * Searches on the calling thread, stopping the query once it's cancelled.
+	 * @param text Text typed by the user
+	 * @param beforeID 0 for the first page, or the ID of the last result of the previous page
+	 * @param cancelled Returns true once the results are no longer needed
+	 * @return Page of results, empty if the text has no words, or null if the search was cancelled
+	 */
+	public static Page search(String text, int beforeID, BooleanSupplier cancelled) {
+		if (cancelled.getAsBoolean()) {
+			return null;
+		}
+		String query = TaskSearch.toQuery(text);
+		if (query == null) {
+			return new Page(Collections.<Result>emptyList(), false);
+		}
+
+		//One extra row tells whether there is another page
+		ArrayList<Result> results = new ArrayList<Result>();
+		Object[] data = new Object[] {query, beforeID == 0 ? Integer.MAX_VALUE : beforeID, TaskSearch.PAGE_SIZE + 1};
+		boolean finished = SQLConnector.read(TaskSearch.SEARCH_QUERY, data, rs -> {
+			try {
+				while (rs.next()) {
+					results.add(new Result(rs.getInt("ID"), rs.getString("Name"), SQLConnector.getDate(rs, "Date"), SQLConnector.getBoolean(rs, "Completed")));
+				}
+			} catch (SQLException e) {
+				//Interrupted when cancelled
+				if (!cancelled.getAsBoolean()) {
+					System.out.println(e);
+				}
+			}
+		}, cancelled);
+		if (!finished && cancelled.getAsBoolean()) {
+			return null;
+		}
+
+		boolean more = results.size() > TaskSearch.PAGE_SIZE;
+		if (more) {
+			results.remove(TaskSearch.PAGE_SIZE);
+		}
+		return new Page(results, more);
+	}
+
+	/**
+	 * Turns typed text into an FTS5 query matching every word as a prefix. Characters other than letters and digits separate words, as in the index.
+	 * @param text Text typed by the user
+	 * @return FTS5 query, or null if the text has no words
+	 */
+	static String toQuery(String text) {
+		StringBuilder query = new StringBuilder();
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i <= text.length(); i++) {
+			char character = i < text.length() ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(character)) {
+				word.append(character);
+			} else if (word.length() > 0) {
+				if (query.length() > 0) {
+					query.append(' ');
+				}
+				query.append('"').append(word).append("\"*");
+				word.setLength(0);
+			}
+		}
+		return query.length() == 0 ? null : query.toString();
+	}
+
+	private static synchronized boolean isCurrent(long search) {
+		return search == TaskSearch.searchCount;
+	}
+
+	/**
+	 * A page of search results.
+	 */
+	public static class Page {
+
+		final List<Result> results;
+		final boolean more;
+
+		Page(List<Result> results, boolean more) {
+			this.results = results;
+			this.more = more;
+		}
+
+		public List<Result> getResults() {
+			return this.results;
+		}
+
+		/**
+		 * @return True if there are results after this page
+		 */
+		public boolean hasMore() {
+			return this.more;
+		}
+	}
+
+	/**
+	 * A MainTask found by a search.
+	 */
+	public static class Result {
+
+		final int iD;
+		final String name;
+		final LocalDate date;
+		final boolean completed;
+
+		Result(int iD, String name, LocalDate date, boolean completed) {
+			this.iD = iD;
+			this.name = name;
+			this.date = date;
+			this.completed = completed;
+		}
+
+		public int getID() {
+			return this.iD;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public LocalDate getDate() {
+			return this.date;
+		}
+
+		public boolean isCompleted() {
+			return this.completed;
+		}
+
+		@Override
+		public String toString() {
+			return this.date + " " + this.name;
+		}
+	}
+}
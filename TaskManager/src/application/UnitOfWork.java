@@ -0,0 +1,113 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Write-behind buffer for Task updates. Setters register their Task as dirty instead of writing it right away.
+ * Repeated updates to the same Task are merged, and flush() writes all dirty Tasks in one transaction with batched statements on the database writer thread.
+ * Flushed at commit points: after a UI action completes, before tasks are read from the database and when the application exits.
+ */
+public final class UnitOfWork {
+
+	//Tasks with changes not yet written to the database, in order of first change
+	private static final LinkedHashSet<Task> dirtyTasks = new LinkedHashSet<Task>();
+
+	//Number of flushes and rows written, for comparing against the number of setter calls
+	private static long flushCount = 0;
+	private static long registerCount = 0;
+	private static long writeCount = 0;
+
+	/**
+	 * Mark a Task as changed. Its current values are written at the next flush.
+	 * @param task Task with an existing database entry
+	 */
+	public static synchronized void register(Task task) {
+		UnitOfWork.dirtyTasks.add(task);
+		UnitOfWork.registerCount++;
+	}
+
+	/**
+	 * Forget pending changes to a Task, for example because its database entry is deleted.
+	 * @param task Task to forget
+	 */
+	public static synchronized void discard(Task task) {
+		UnitOfWork.dirtyTasks.remove(task);
+	}
+
+	/**
+	 * @return True if there are changes that haven't been written to the database yet
+	 */
+	public static synchronized boolean isDirty() {
+		return !UnitOfWork.dirtyTasks.isEmpty();
+	}
+
+	/**
+	 * Write all dirty Tasks to the database in one transaction on the database writer thread.
+	 * Values are taken when flush is called, IDs when the transaction runs, so tasks with a pending insert are written with their new ID.
+	 * Tasks are grouped per update statement and written as JDBC batches.
+	 * @return CompletableFuture completed with the number of rows written, 0 if the transaction failed and the Tasks were marked dirty again
+	 */
+	public static CompletableFuture<Integer> flush() {
+		//Collect current values of dirty tasks per update statement
+		LinkedHashMap<String, List<Object[]>> batches = new LinkedHashMap<String, List<Object[]>>();
+		LinkedHashMap<String, List<Task>> batchTasks = new LinkedHashMap<String, List<Task>>();
+		int rowCount = 0;
+		synchronized (UnitOfWork.class) {
+			if (UnitOfWork.dirtyTasks.isEmpty()) {
+				return CompletableFuture.completedFuture(0);
+			}
+			for (Task task : UnitOfWork.dirtyTasks) {
+				batches.computeIfAbsent(task.getUpdateString(), updateString -> new ArrayList<Object[]>()).add(task.getUpdateData());
+				batchTasks.computeIfAbsent(task.getUpdateString(), updateString -> new ArrayList<Task>()).add(task);
+				rowCount++;
+			}
+			UnitOfWork.dirtyTasks.clear();
+			UnitOfWork.flushCount++;
+			UnitOfWork.writeCount += rowCount;
+
+			//Submit while holding the lock, so flushes reach the writer thread in order
+			int writtenCount = rowCount;
+			return AsyncSQLConnector.submitWrite(() -> {
+				//Fill in IDs, which may have been generated after the values were taken
+				for (Map.Entry<String, List<Object[]>> batch : batches.entrySet()) {
+					List<Task> tasks = batchTasks.get(batch.getKey());
+					for (int i = 0; i < tasks.size(); i++) {
+						Object[] data = batch.getValue().get(i);
+						data[data.length - 1] = tasks.get(i).getID();
+					}
+				}
+
+				//Keep the changes if the transaction failed, so the next flush writes them again
+				if (!SQLConnector.updateBatch(batches)) {
+					UnitOfWork.reregister(batchTasks.values());
+					return 0;
+				}
+				return writtenCount;
+			});
+		}
+	}
+
+	/**
+	 * Mark the Tasks of a failed flush as dirty again. Their current values are written at the next flush.
+	 * @param taskLists Tasks of the failed flush, per update statement
+	 */
+	private static synchronized void reregister(Collection<List<Task>> taskLists) {
+		for (List<Task> tasks : taskLists) {
+			UnitOfWork.dirtyTasks.addAll(tasks);
+			UnitOfWork.writeCount -= tasks.size();
+		}
+	}
+
+	/**
+	 * @return Summary of the number of registered changes, flushes and rows written
+	 */
+	public static synchronized String getStats() {
+		return "registered " + UnitOfWork.registerCount + ", flushes " + UnitOfWork.flushCount + ", rows written " + UnitOfWork.writeCount + ", pending " + UnitOfWork.dirtyTasks.size();
+	}
+}
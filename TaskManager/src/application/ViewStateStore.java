@@ -0,0 +1,190 @@
+package application;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the UI state of MainTasks, expanded and edit mode, apart from the task data.
+ * State is held in memory per task ID and saved to the viewstate table periodically and on shutdown, so toggling panes doesn't write to the tasks table.
+ * Only tasks with a flag set have a row in the viewstate table.
+ */
+public final class ViewStateStore {
+
+	//Bits of the packed state
+	private static final int EXPANDED = 1;
+	private static final int EDIT_MODE = 2;
+
+	//Default interval between saves in milliseconds
+	public static final long DEFAULT_SAVE_INTERVAL = 5000;
+
+	//State per task ID, tasks without an entry have no flags set
+	private static final HashMap<Integer, Integer> states = new HashMap<Integer, Integer>();
+
+	//Changed states not yet saved, by task so tasks still being inserted can be saved once they have an ID
+	private static final LinkedHashMap<MainTask, Integer> dirtyStates = new LinkedHashMap<MainTask, Integer>();
+	//States taken by save() that the writer thread hasn't written yet
+	private static final ArrayList<LinkedHashMap<MainTask, Integer>> pendingSaves = new ArrayList<LinkedHashMap<MainTask, Integer>>();
+
+	private static ScheduledExecutorService autoSaver;
+
+	/**
+	 * Read all saved view states from the database, replacing the states in memory.
+	 */
+	public static void load() {
+		HashMap<Integer, Integer> loadedStates = new HashMap<Integer, Integer>();
+		SQLConnector.read("SELECT * FROM viewstate", rs -> {
+			try {
+				while (rs.next()) {
+					loadedStates.put(rs.getInt("TaskID"), ViewStateStore.pack(SQLConnector.getBoolean(rs, "Expanded"), SQLConnector.getBoolean(rs, "Editmode")));
+				}
+			} catch (SQLException e) {
+				System.out.println(e);
+			}
+		});
+
+		synchronized (ViewStateStore.class) {
+			ViewStateStore.states.clear();
+			ViewStateStore.states.putAll(loadedStates);
+		}
+	}
+
+	public static synchronized boolean isExpanded(int taskID) {
+		return (ViewStateStore.getState(taskID) & ViewStateStore.EXPANDED) != 0;
+	}
+
+	public static synchronized boolean isEditMode(int taskID) {
+		return (ViewStateStore.getState(taskID) & ViewStateStore.EDIT_MODE) != 0;
+	}
+
+	/**
+	 * Record the current expanded and edit mode state of a MainTask. Written to the database at the next save.
+	 * @param task MainTask whose state changed
+	 */
+	public static synchronized void put(MainTask task) {
+		int state = ViewStateStore.pack(task.isExpanded(), task.isEditMode());
+		ViewStateStore.dirtyStates.put(task, state);
+		if (task.getID() != 0) {
+			ViewStateStore.setState(task.getID(), state);
+		}
+	}
+
+	/**
+	 * Record the state of a MainTask whose insert just finished, if it has a flag set. States put while it had no ID aren't saved.
+	 * @param task MainTask that has its ID
+	 */
+	public static synchronized void inserted(MainTask task) {
+		if (task.isExpanded() || task.isEditMode()) {
+			ViewStateStore.put(task);
+		}
+	}
+
+	/**
+	 * Forget the state of a MainTask whose database entry is deleted, also if a save has already taken it. Its viewstate row is deleted along with the task.
+	 * @param task Deleted MainTask
+	 */
+	public static synchronized void remove(MainTask task) {
+		ViewStateStore.dirtyStates.remove(task);
+		for (LinkedHashMap<MainTask, Integer> savedStates : ViewStateStore.pendingSaves) {
+			savedStates.remove(task);
+		}
+		ViewStateStore.states.remove(task.getID());
+	}
+
+	/**
+	 * Write changed states to the viewstate table in one transaction on the database writer thread.
+	 * Writes submitted earlier have finished by then, so a task that still has no ID hasn't been inserted yet.
+	 * Its state is dropped and put again by inserted() once it has an ID.
+	 * @return CompletableFuture completed when the states are written
+	 */
+	public static synchronized CompletableFuture<Void> save() {
+		if (ViewStateStore.dirtyStates.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		LinkedHashMap<MainTask, Integer> savedStates = new LinkedHashMap<MainTask, Integer>(ViewStateStore.dirtyStates);
+		ViewStateStore.dirtyStates.clear();
+		ViewStateStore.pendingSaves.add(savedStates);
+
+		return AsyncSQLConnector.submitWrite(() -> {
+			List<Object[]> replaceData = new ArrayList<Object[]>();
+			List<Object[]> deleteData = new ArrayList<Object[]>();
+
+			synchronized (ViewStateStore.class) {
+				ViewStateStore.pendingSaves.removeIf(pendingStates -> pendingStates == savedStates);
+				for (Map.Entry<MainTask, Integer> entry : savedStates.entrySet()) {
+					int taskID = entry.getKey().getID();
+					int state = entry.getValue();
+					if (taskID == 0) {
+						continue;
+					}
+					ViewStateStore.setState(taskID, state);
+					if (state == 0) {
+						deleteData.add(new Object[] {taskID});
+					} else {
+						replaceData.add(new Object[] {taskID, (state & ViewStateStore.EXPANDED) != 0, (state & ViewStateStore.EDIT_MODE) != 0});
+					}
+				}
+			}
+
+			LinkedHashMap<String, List<Object[]>> batches = new LinkedHashMap<String, List<Object[]>>();
+			if (!replaceData.isEmpty()) {
+				batches.put("INSERT OR REPLACE INTO viewstate (TaskID, Expanded, Editmode) VALUES (?,?,?)", replaceData);
+			}
+			if (!deleteData.isEmpty()) {
+				batches.put("DELETE FROM viewstate WHERE TaskID = ?", deleteData);
+			}
+			if (!batches.isEmpty()) {
+				SQLConnector.updateBatch(batches);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Save changed states at a fixed interval on a background thread.
+	 * @param interval Milliseconds between saves
+	 */
+	public static synchronized void startAutoSave(long interval) {
+		ViewStateStore.stopAutoSave();
+		ViewStateStore.autoSaver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "View state saver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ViewStateStore.autoSaver.scheduleWithFixedDelay(ViewStateStore::save, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop saving at a fixed interval. Changed states are kept until the next call to save().
+	 */
+	public static synchronized void stopAutoSave() {
+		if (ViewStateStore.autoSaver != null) {
+			ViewStateStore.autoSaver.shutdownNow();
+			ViewStateStore.autoSaver = null;
+		}
+	}
+
+	private static int getState(int taskID) {
+		Integer state = ViewStateStore.states.get(taskID);
+		return state == null ? 0 : state;
+	}
+
+	private static void setState(int taskID, int state) {
+		if (state == 0) {
+			ViewStateStore.states.remove(taskID);
+		} else {
+			ViewStateStore.states.put(taskID, state);
+		}
+	}
+
+	private static int pack(boolean expanded, boolean editMode) {
+		return (expanded ? ViewStateStore.EXPANDED : 0) | (editMode ? ViewStateStore.EDIT_MODE : 0);
+	}
+}